@@ -0,0 +1,61 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sudoku.grid.Grid;
+
+/**
+ * solve1() when the solution cache already has every puzzle of the set, so
+ * each solve is building the grid, putting it in canonical form and copying
+ * the solution in. Scores are grids per second; compare with the MY_SOLVER
+ * scores of {@link SolveBenchmark}, which leave the cache out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CachedSolveBenchmark {
+    
+    @Param({"EASY", "MEDIUM", "HARD", "PATHOLOGICAL"})
+    public String set;
+    
+    private int[][] puzzles;
+    private int next;
+    
+    @Setup
+    public void setUp() throws Exception {
+        String[] strings = Puzzles.named(set);
+        puzzles = new int[strings.length][];
+        for (int i = 0; i < strings.length; i++){
+            puzzles[i] = Puzzles.toCells(strings[i]);
+            
+            // Into the cache
+            Grid.of(puzzles[i]).solve1();
+        }
+    }
+    
+    /**
+     * Solve the next puzzle of the set from the cache, going round in turn.
+     * @param blackhole
+     * @throws Exception 
+     */
+    @Benchmark
+    public void solve(Blackhole blackhole) throws Exception {
+        Grid grid = Grid.of(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        blackhole.consume(grid.solve1());
+    }
+}
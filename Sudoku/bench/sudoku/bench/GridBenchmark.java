@@ -0,0 +1,83 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.grid.Cell;
+import sudoku.grid.CellGroup;
+import sudoku.grid.CellGroup.GroupType;
+import sudoku.grid.Grid;
+
+/**
+ * Throughput of building, cloning and generating grids, and of the group
+ * scan used for hidden singles. Run with the gc profiler (the default in
+ * the Ant "bench" target) to see allocation rates as well.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GridBenchmark {
+    
+    private Integer[][] data;
+    private int[] values;
+    private Grid grid;
+    private CellGroup group;
+    
+    @Setup
+    public void setUp() throws Exception {
+        data = Puzzles.toData(Puzzles.MEDIUM[0]);
+        values = Puzzles.toCells(Puzzles.MEDIUM[0]);
+        grid = new Grid(data);
+        
+        // A group with a few values found, like one partway through solving
+        group = new CellGroup(GroupType.ROW, 0);
+        for (int i = 0; i < 9; i++){
+            group.addCell(i, new Cell(0, i));
+        }
+        group.clearValueFromCells(0, 4);
+        group.clearValueFromCells(3, 7);
+        group.clearValueFromCells(5, 1);
+        group.clearValueFromCells(8, 9);
+    }
+    
+    @Benchmark
+    public Grid emptyGrid() {
+        return new Grid();
+    }
+    
+    @Benchmark
+    public Grid gridFromData() throws Exception {
+        return new Grid(data);
+    }
+    
+    @Benchmark
+    public Grid gridFromValues() throws Exception {
+        return Grid.of(values);
+    }
+    
+    @Benchmark
+    public Grid cloneGrid() throws Exception {
+        return new Grid(grid);
+    }
+    
+    @Benchmark
+    public Grid randomGrid() throws Exception {
+        return new Grid(30);
+    }
+    
+    @Benchmark
+    public Object lookForMissingValues() {
+        return group.lookForMissingValues();
+    }
+}
@@ -0,0 +1,79 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sudoku.grid.DancingLinksSolver;
+import sudoku.grid.Grid;
+import sudoku.grid.MySolver;
+import sudoku.grid.Solver;
+import sudoku.grid.SolverType;
+import sudoku.grid.Topology;
+
+/**
+ * Full solves of 16x16 and 25x25 grids, including building the grid.
+ * Scores are milliseconds per grid. Plain backtracking is left out, since
+ * it can take seconds on some 25x25 grids, and so are 25x25 grids with half
+ * their cells empty or more, where the odd one takes seconds with any engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LargeGridBenchmark {
+
+    private static final int PUZZLES = 8;
+
+    @Param({"4", "5"})
+    public int boxSize;
+
+    // Share of the cells left empty
+    @Param({"0.4", "0.45"})
+    public double blank;
+
+    @Param({"MY_SOLVER", "DANCING_LINKS"})
+    public SolverType engine;
+
+    private Topology topology;
+    private int[][] puzzles;
+    private Solver solver;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        topology = Topology.of(boxSize);
+        puzzles = new int[PUZZLES][];
+        for (int i = 0; i < PUZZLES; i++){
+            puzzles[i] = Puzzles.shuffled(topology, blank, i);
+        }
+        if (engine == SolverType.DANCING_LINKS){
+            solver = new DancingLinksSolver(topology);
+        } else {
+            solver = new MySolver();
+        }
+    }
+
+    /**
+     * Solve the next puzzle, going round in turn.
+     * @param blackhole
+     * @throws Exception
+     */
+    @Benchmark
+    public void solve(Blackhole blackhole) throws Exception {
+        Grid grid = Grid.of(topology, puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        blackhole.consume(grid.solve(solver));
+    }
+}
@@ -0,0 +1,71 @@
+package sudoku.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sudoku.display.SudokuTable;
+import sudoku.grid.Grid;
+
+/**
+ * Painting the whole 9x9 table into an image, the way a repaint of the
+ * window would, with and without pencil marks. Scores are microseconds per
+ * paint; run with the gc profiler to see what painting allocates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PaintBenchmark {
+    
+    private static final int CELL_SIZE = 50;
+    
+    @Param({"false", "true"})
+    public boolean pencilMarks;
+    
+    private SudokuTable table;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    
+    @Setup
+    public void setUp() throws Exception {
+        table = new SudokuTable();
+        table.getPuzzlePool().shutdown();
+        table.setGrid(Grid.of(Puzzles.toCells(Puzzles.MEDIUM[0])));
+        table.setShowCandidates(pencilMarks);
+        table.setRowHeight(CELL_SIZE);
+        table.setSize(9*CELL_SIZE, 9*CELL_SIZE);
+        table.doLayout();
+        
+        image = new BufferedImage(table.getWidth(), table.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+    
+    /**
+     * Paint every cell of the table.
+     * @return the image, so the paint isn't thrown away
+     */
+    @Benchmark
+    public BufferedImage paint() {
+        table.paint(graphics);
+        return image;
+    }
+}
@@ -0,0 +1,59 @@
+package sudoku.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import sudoku.grid.ArraySolver;
+import sudoku.grid.BacktrackingSolver;
+import sudoku.grid.ParallelSolver;
+
+/**
+ * Compare single-threaded backtracking against the fork/join solver on the
+ * hard puzzles. 
+ * 
+ * Usage: ParallelSolverBenchmark [rounds] [threads] [splitDepth]
+ */
+public class ParallelSolverBenchmark {
+    
+    public static void main(String[] args) {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 
+                Runtime.getRuntime().availableProcessors();
+        int splitDepth = (args.length > 2) ? Integer.parseInt(args[2]) : 
+                ParallelSolver.DEFAULT_SPLIT_DEPTH;
+        
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ArraySolver sequential = new BacktrackingSolver();
+        ArraySolver parallel = new ParallelSolver(pool, splitDepth);
+        
+        // Warm up both before timing anything
+        run(sequential, rounds);
+        run(parallel, rounds);
+        
+        double sequentialRate = run(sequential, rounds);
+        double parallelRate = run(parallel, rounds);
+        System.out.printf("Sequential: %.1f puzzles/s%n", sequentialRate);
+        System.out.printf("Parallel (%d threads, split depth %d): %.1f puzzles/s (%.2fx)%n",
+                threads, splitDepth, parallelRate, parallelRate/sequentialRate);
+        pool.shutdown();
+    }
+    
+    /**
+     * Solve every hard puzzle some number of times.
+     * @param solver
+     * @param rounds
+     * @return puzzles solved per second
+     */
+    private static double run(ArraySolver solver, int rounds){
+        int[] cells = new int[81];
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++){
+            for (String puzzle : Puzzles.HARD){
+                System.arraycopy(Puzzles.toCells(puzzle), 0, cells, 0, 81);
+                if (!solver.solve(cells)){
+                    throw new IllegalStateException("Unable to solve " + puzzle);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return rounds*Puzzles.HARD.length/(elapsed/1e9);
+    }
+}
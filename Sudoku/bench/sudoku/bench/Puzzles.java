@@ -0,0 +1,140 @@
+package sudoku.bench;
+
+import java.util.Random;
+import sudoku.grid.Topology;
+
+/**
+ * Puzzle sets for benchmarking, in the usual 81-character format with '.'
+ * for empty cells.
+ */
+public final class Puzzles {
+    
+    public static final String[] EASY = {
+        "..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..",
+        "2...8.3...6..7..84.3.5..2.9...1.54.8.........4.27.6...3.1..7.4.72..4..6...4.1...3",
+        "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79"
+    };
+    
+    public static final String[] MEDIUM = {
+        "......9.7...42.18....7.5.261..9.4....5.....4....5.7..992.1.8....34.59...5.7......",
+        ".3..5..4...8.1.5..46.....12.7.5.2.8....6.3....4.1.9.3.25.....98..1.2.6...8..6..2.",
+        ".6.7.8.3......1.....493.87..3....18.2.......9..75......7....32........4.8....6..."
+    };
+    
+    public static final String[] HARD = {
+        "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+        "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+        "1.......2.9.4...5...6...7...5.9.3.......7.......85..4.7.....6...3...9.8...2.....1",
+        "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+        "12.3....435....1....4........54..2..6...7.........8.9...31..5.......9.7.....6...8"
+    };
+    
+    // Puzzles that are especially bad for naive guessing; the last one has 
+    // more than one solution
+    public static final String[] PATHOLOGICAL = {
+        ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...",
+        "..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+        ".....6....59.....82....8....45........3........6..3.54...325..6.................."
+    };
+    
+    private Puzzles(){
+    }
+    
+    /**
+     * @param set EASY, MEDIUM, HARD or PATHOLOGICAL
+     * @return the puzzle set with that name
+     */
+    public static String[] named(String set){
+        switch (set){
+            case "EASY":
+                return EASY;
+            case "MEDIUM":
+                return MEDIUM;
+            case "HARD":
+                return HARD;
+            default:
+                return PATHOLOGICAL;
+        }
+    }
+    
+    /**
+     * A full grid of any size, shuffled from a pattern, with some of the 
+     * cells emptied. There's no puzzle set for the bigger grids, and these 
+     * may have more than one solution, which is fine for timing solves.
+     * @param topology
+     * @param blank the share of cells to empty
+     * @param seed
+     * @return a value for every cell in row-major order, 0 for empty
+     */
+    public static int[] shuffled(Topology topology, double blank, long seed){
+        int size = topology.size;
+        int box = topology.boxSize;
+        Random random = new Random(seed);
+        int[] digits = shuffle(size, random);
+        int[] rows = lines(box, random);
+        int[] cols = lines(box, random);
+        int[] cells = new int[topology.cellCount];
+        for (int row = 0; row < size; row++){
+            for (int col = 0; col < size; col++){
+                int r = rows[row];
+                if (random.nextDouble() >= blank){
+                    cells[row*size + col] = digits[((r%box)*box + r/box + cols[col])%size] + 1;
+                }
+            }
+        }
+        return cells;
+    }
+    
+    // Lines shuffled within their bands, and the bands shuffled too
+    private static int[] lines(int box, Random random){
+        int[] bands = shuffle(box, random);
+        int[] lines = new int[box*box];
+        for (int band = 0; band < box; band++){
+            int[] within = shuffle(box, random);
+            for (int i = 0; i < box; i++){
+                lines[band*box + i] = bands[band]*box + within[i];
+            }
+        }
+        return lines;
+    }
+    
+    private static int[] shuffle(int n, Random random){
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++){
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+    
+    /**
+     * @param puzzle
+     * @return the puzzle as 81 values in row-major order, 0 for empty
+     */
+    public static int[] toCells(String puzzle){
+        int[] cells = new int[81];
+        for (int i = 0; i < 81; i++){
+            char c = puzzle.charAt(i);
+            cells[i] = (c >= '1' && c <= '9') ? c - '0' : 0;
+        }
+        return cells;
+    }
+    
+    /**
+     * @param puzzle
+     * @return the puzzle in the form taken by Grid(Integer[][])
+     */
+    public static Integer[][] toData(String puzzle){
+        Integer[][] data = new Integer[9][9];
+        int[] cells = toCells(puzzle);
+        for (int i = 0; i < 81; i++){
+            data[i/9][i%9] = (cells[i] == 0) ? null : cells[i];
+        }
+        return data;
+    }
+}
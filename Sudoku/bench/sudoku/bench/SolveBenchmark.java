@@ -0,0 +1,70 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sudoku.grid.Grid;
+import sudoku.grid.SolveBudget;
+import sudoku.grid.Solver;
+import sudoku.grid.SolverType;
+
+/**
+ * Full solves of each puzzle set with each engine, including building the
+ * grid. Scores are grids per second. MySolver runs without the solution
+ * cache, which would otherwise answer every puzzle after the first round;
+ * see {@link CachedSolveBenchmark} for that.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SolveBenchmark {
+    
+    @Param({"EASY", "MEDIUM", "HARD", "PATHOLOGICAL"})
+    public String set;
+    
+    @Param({"MY_SOLVER", "BACKTRACKING", "DANCING_LINKS"})
+    public SolverType engine;
+    
+    private Integer[][][] puzzles;
+    private Solver solver;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        String[] strings = Puzzles.named(set);
+        puzzles = new Integer[strings.length][][];
+        for (int i = 0; i < strings.length; i++){
+            puzzles[i] = Puzzles.toData(strings[i]);
+        }
+        solver = engine.newSolver();
+    }
+    
+    /**
+     * Solve the next puzzle of the set, going round in turn.
+     * @param blackhole
+     * @throws Exception 
+     */
+    @Benchmark
+    public void solve(Blackhole blackhole) throws Exception {
+        Grid grid = new Grid(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        if (engine == SolverType.MY_SOLVER){
+            blackhole.consume(grid.solve1(new SolveBudget(), false));
+        } else {
+            blackhole.consume(grid.solve(solver));
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package sudoku.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import sudoku.grid.ArraySolver;
+import sudoku.grid.CachingSolver;
+import sudoku.grid.DancingLinksSolver;
+import sudoku.grid.DifficultyRater;
+import sudoku.grid.Rating;
+import sudoku.grid.SolutionCache;
+import sudoku.grid.SolveBudget;
+import sudoku.grid.SolveStatus;
+
+/**
+ * Headless solving of puzzle files with one puzzle per line. Lines are read
+ * in chunks and handed to a pool of workers; at most a fixed number of chunks
+ * are in flight at once, and they're written out in the order they were 
+ * read, so memory use doesn't depend on the size of the input.
+ * 
+ * Usage: BatchSolver [-t threads] [-c chunkSize] [-k cacheSize] [-r] [-s from:to] 
+ *                    [-T millis] [-n nodes] [input|-] [output|-]
+ * 
+ * The input can also be a {@link PuzzleCorpus}, in which case -s picks the 
+ * range of puzzles to solve, for splitting a run across machines.
+ * 
+ * Each output line is the solution, or UNSOLVABLE / INVALID. With -T (a time
+ * limit in milliseconds) or -n (a limit on search nodes), each puzzle gets 
+ * that much and is BUDGET_EXCEEDED if it runs out. With -r, solved
+ * lines are followed by the puzzle's difficulty score and label. With -k, 
+ * solutions are cached so repeated (or equivalent) puzzles are only solved
+ * once.
+ */
+public class BatchSolver {
+    
+    public static final String UNSOLVABLE = "UNSOLVABLE";
+    public static final String INVALID = "INVALID";
+    public static final String BUDGET_EXCEEDED = "BUDGET_EXCEEDED";
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    // Each worker thread keeps its own rater and solver
+    private static final ThreadLocal<DifficultyRater> RATER = 
+            ThreadLocal.withInitial(DifficultyRater::new);
+    private final ThreadLocal<ArraySolver> solvers;
+    
+    private final int threads;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final boolean rate;
+    private final SolutionCache cache;
+    private long puzzles;
+    
+    // Limits for each puzzle, 0 for none
+    private long timeoutMillis;
+    private long maxNodes;
+    
+    /**
+     * @param threads number of worker threads
+     * @param chunkSize number of lines handed to a worker at once
+     */
+    public BatchSolver(int threads, int chunkSize){
+        this(threads, chunkSize, false, null);
+    }
+    
+    /**
+     * @param threads number of worker threads
+     * @param chunkSize number of lines handed to a worker at once
+     * @param rate whether to add each puzzle's difficulty to its solution
+     * @param cache solutions shared by the workers, or null for none
+     */
+    public BatchSolver(int threads, int chunkSize, boolean rate, SolutionCache cache){
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = threads*4;
+        this.rate = rate;
+        this.cache = cache;
+        if (cache == null){
+            solvers = ThreadLocal.withInitial(DancingLinksSolver::new);
+        } else {
+            solvers = ThreadLocal.withInitial(() -> new CachingSolver(new DancingLinksSolver(), cache));
+        }
+    }
+    
+    /**
+     * Give up on any one puzzle once it's taken too long, so a few very hard
+     * ones can't hold up the rest.
+     * @param timeoutMillis time for each puzzle, or 0 for no limit
+     * @param maxNodes search nodes for each puzzle, or 0 for no limit
+     */
+    public void setPuzzleBudget(long timeoutMillis, long maxNodes){
+        this.timeoutMillis = timeoutMillis;
+        this.maxNodes = maxNodes;
+    }
+    
+    /**
+     * Solve every puzzle from the input, writing the results in order.
+     * @param input
+     * @param output
+     * @return the number of puzzles read
+     * @throws IOException
+     * @throws InterruptedException 
+     */
+    public long run(Reader input, Writer output) throws IOException, InterruptedException{
+        BufferedReader reader = new BufferedReader(input, BUFFER_SIZE);
+        BufferedWriter writer = new BufferedWriter(output, BUFFER_SIZE);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<StringBuilder>> inFlight = new ArrayDeque<>();
+        puzzles = 0;
+        
+        try {
+            String[] chunk;
+            while ((chunk = readChunk(reader)) != null){
+                // Wait for the oldest chunk if we've got too many going
+                if (inFlight.size() >= maxChunksInFlight){
+                    write(inFlight.poll(), writer);
+                }
+                String[] lines = chunk;
+                inFlight.add(workers.submit(() -> solveChunk(lines)));
+            }
+            while (!inFlight.isEmpty()){
+                write(inFlight.poll(), writer);
+            }
+            writer.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        return puzzles;
+    }
+    
+    /**
+     * Solve a range of puzzles from a corpus, writing the results in order.
+     * Workers read their puzzles straight from the corpus, so nothing but 
+     * the range of each chunk is handed over.
+     * @param corpus
+     * @param from first index
+     * @param to index after the last one
+     * @param output
+     * @return the number of puzzles solved
+     * @throws IOException
+     * @throws InterruptedException 
+     */
+    public long run(PuzzleCorpus corpus, long from, long to, Writer output) 
+            throws IOException, InterruptedException{
+        BufferedWriter writer = new BufferedWriter(output, BUFFER_SIZE);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<StringBuilder>> inFlight = new ArrayDeque<>();
+        
+        try {
+            for (long start = from; start < to; start += chunkSize){
+                if (inFlight.size() >= maxChunksInFlight){
+                    write(inFlight.poll(), writer);
+                }
+                long first = start;
+                long last = Math.min(to, start + chunkSize);
+                inFlight.add(workers.submit(() -> solveChunk(corpus, first, last)));
+            }
+            while (!inFlight.isEmpty()){
+                write(inFlight.poll(), writer);
+            }
+            writer.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        puzzles = Math.max(0, to - from);
+        return puzzles;
+    }
+    
+    /**
+     * @param reader
+     * @return up to chunkSize non-blank lines, or null at the end of input
+     * @throws IOException 
+     */
+    private String[] readChunk(BufferedReader reader) throws IOException{
+        String[] lines = new String[chunkSize];
+        int count = 0;
+        String line;
+        while (count < chunkSize && (line = reader.readLine()) != null){
+            if (!line.trim().isEmpty()){
+                lines[count++] = line;
+            }
+        }
+        if (count == 0){
+            return null;
+        }
+        puzzles += count;
+        if (count < chunkSize){
+            String[] shorter = new String[count];
+            System.arraycopy(lines, 0, shorter, 0, count);
+            return shorter;
+        }
+        return lines;
+    }
+    
+    private StringBuilder solveChunk(String[] lines) throws Exception{
+        StringBuilder out = new StringBuilder(lines.length*(PuzzleFormat.LENGTH + 1));
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        for (String line : lines){
+            solve(cells, PuzzleFormat.parse(line, cells), out);
+        }
+        return out;
+    }
+    
+    private StringBuilder solveChunk(PuzzleCorpus corpus, long from, long to) throws Exception{
+        StringBuilder out = new StringBuilder((int) (to - from)*(PuzzleFormat.LENGTH + 1));
+        corpus.forEach(from, to, (index, cells, valid) -> solve(cells, valid, out));
+        return out;
+    }
+    
+    /**
+     * Solve one puzzle and add its line to the output.
+     * @param cells the puzzle, filled in if it's solved
+     * @param valid whether the puzzle could be read
+     * @param out
+     * @throws Exception 
+     */
+    private void solve(int[] cells, boolean valid, StringBuilder out) throws Exception{
+        if (!valid){
+            out.append(INVALID).append('\n');
+            return;
+        }
+        
+        // Solving fills in the cells, so keep the puzzle to rate
+        int[] puzzle = rate ? cells.clone() : null;
+        SolveStatus status;
+        if (timeoutMillis > 0 || maxNodes > 0){
+            SolveBudget budget = new SolveBudget(timeoutMillis, TimeUnit.MILLISECONDS, maxNodes);
+            status = solvers.get().solve(cells, budget);
+        } else {
+            status = solvers.get().solve(cells) ? SolveStatus.SOLVED : SolveStatus.UNSOLVABLE;
+        }
+        
+        if (status == SolveStatus.SOLVED){
+            PuzzleFormat.format(cells, out);
+            if (rate){
+                Rating rating = RATER.get().rate(puzzle);
+                out.append(' ').append(Math.round(rating.getScore()*10)/10.0)
+                   .append(' ').append(rating.getDifficulty());
+            }
+        } else if (status == SolveStatus.UNSOLVABLE){
+            out.append(UNSOLVABLE);
+        } else {
+            out.append(BUDGET_EXCEEDED);
+        }
+        out.append('\n');
+    }
+    
+    private static void write(Future<StringBuilder> chunk, Writer writer) 
+            throws IOException, InterruptedException{
+        try {
+            writer.append(chunk.get());
+        } catch (ExecutionException ex){
+            throw new IOException("Unable to solve a chunk of puzzles", ex.getCause());
+        }
+    }
+    
+    public static void main(String[] args) throws Exception{
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = 256;
+        boolean rate = false;
+        int cacheSize = 0;
+        long from = 0;
+        long to = Long.MAX_VALUE;
+        long timeoutMillis = 0;
+        long maxNodes = 0;
+        String inputName = "-";
+        String outputName = "-";
+        
+        int positional = 0;
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("-t")){
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-c")){
+                chunkSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-k")){
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-T")){
+                timeoutMillis = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-n")){
+                maxNodes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-r")){
+                rate = true;
+            } else if (args[i].equals("-s")){
+                String[] range = args[++i].split(":");
+                from = Long.parseLong(range[0]);
+                to = Long.parseLong(range[1]);
+            } else if (positional++ == 0){
+                inputName = args[i];
+            } else {
+                outputName = args[i];
+            }
+        }
+        
+        OutputStream out = outputName.equals("-") ? System.out : new FileOutputStream(outputName);
+        SolutionCache cache = cacheSize > 0 ? new SolutionCache(cacheSize) : null;
+        BatchSolver batch = new BatchSolver(threads, chunkSize, rate, cache);
+        batch.setPuzzleBudget(timeoutMillis, maxNodes);
+        
+        long start = System.nanoTime();
+        long count;
+        if (!inputName.equals("-") && PuzzleCorpus.isCorpus(Paths.get(inputName))){
+            try (PuzzleCorpus corpus = PuzzleCorpus.open(Paths.get(inputName));
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.US_ASCII)){
+                count = batch.run(corpus, Math.min(from, corpus.size()), 
+                        Math.min(to, corpus.size()), writer);
+            }
+        } else {
+            InputStream in = inputName.equals("-") ? System.in : new FileInputStream(inputName);
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.US_ASCII);
+                 Writer writer = new OutputStreamWriter(out, StandardCharsets.US_ASCII)){
+                count = batch.run(reader, writer);
+            }
+        }
+        double seconds = (System.nanoTime() - start)/1e9;
+        
+        System.err.printf("Solved %d puzzles in %.2f s (%.0f puzzles/s)%n",
+                count, seconds, count/seconds);
+        if (cache != null){
+            System.err.printf("Cache: %s (%.1f%% hit rate)%n", cache, cache.getHitRate()*100);
+        }
+    }
+}
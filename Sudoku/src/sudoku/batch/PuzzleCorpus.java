@@ -0,0 +1,229 @@
+package sudoku.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import sudoku.grid.Grid;
+import sudoku.grid.GridSnapshot;
+
+/**
+ * A file of puzzles in fixed-size records, read through memory mapping so
+ * any puzzle can be picked by its index without reading the ones before it.
+ *
+ * The file starts with a 4-byte magic number, followed by one record per
+ * puzzle: 41 bytes of 4-bit values in row-major order (low nibble first,
+ * 0 for empty), the same as the values in a {@link GridSnapshot}.
+ *
+ * Usage: PuzzleCorpus [input|-] output, to convert a text file with one
+ * puzzle per line.
+ */
+public class PuzzleCorpus implements Closeable {
+
+    public static final int MAGIC = 0x5344_4B31; // "SDK1"
+    public static final int HEADER_SIZE = 4;
+    public static final int RECORD_SIZE = GridSnapshot.VALUE_BYTES;
+
+    // Mapped in pieces as a single buffer can't go past 2GB; a whole number
+    // of records per piece so none of them is split
+    private static final long RECORDS_PER_SEGMENT = 1 << 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private PuzzleCorpus(FileChannel channel, long size) throws IOException{
+        this.channel = channel;
+        this.size = size;
+        int count = (int) ((size + RECORDS_PER_SEGMENT - 1)/RECORDS_PER_SEGMENT);
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++){
+            long first = i*RECORDS_PER_SEGMENT;
+            long records = Math.min(RECORDS_PER_SEGMENT, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first*RECORD_SIZE, records*RECORD_SIZE);
+        }
+    }
+
+    /**
+     * @param file
+     * @return the corpus, to be closed when done with
+     * @throws IOException if the file isn't a corpus
+     */
+    public static PuzzleCorpus open(Path file) throws IOException{
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            long records = channel.size() - HEADER_SIZE;
+            if (header.hasRemaining() || header.getInt(0) != MAGIC || records % RECORD_SIZE != 0){
+                throw new IOException(file + " is not a puzzle corpus");
+            }
+            return new PuzzleCorpus(channel, records/RECORD_SIZE);
+        } catch (IOException ex){
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @param file
+     * @return whether the file starts like a corpus
+     * @throws IOException
+     */
+    public static boolean isCorpus(Path file) throws IOException{
+        try (InputStream in = Files.newInputStream(file)){
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (EOFException ex){
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of puzzles
+     */
+    public long size(){
+        return size;
+    }
+
+    /**
+     * Read a puzzle; safe to call from several threads at once.
+     * @param index from 0 to size() - 1
+     * @param cells where to put the 81 values, 0 for empty
+     * @return false if the record has a value above 9
+     */
+    public boolean get(long index, int[] cells){
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Puzzle " + index + " of " + size);
+        }
+        MappedByteBuffer segment = segments[(int) (index/RECORDS_PER_SEGMENT)];
+        int start = (int) (index % RECORDS_PER_SEGMENT)*RECORD_SIZE;
+        boolean valid = true;
+        for (int i = 0; i < PuzzleFormat.LENGTH; i += 2){
+            int packed = segment.get(start + i/2);
+            cells[i] = packed & 0xF;
+            valid &= cells[i] <= 9;
+            if (i + 1 < PuzzleFormat.LENGTH){
+                cells[i + 1] = (packed >> 4) & 0xF;
+                valid &= cells[i + 1] <= 9;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @param index
+     * @return a new grid with the puzzle's values set by the game
+     * @throws Exception if the record isn't a valid puzzle
+     */
+    public Grid getGrid(long index) throws Exception{
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        if (!get(index, cells)){
+            throw new Exception("Puzzle " + index + " has a value above 9");
+        }
+        return Grid.of(cells);
+    }
+
+    /**
+     * Something that takes puzzles one by one.
+     */
+    public interface PuzzleConsumer {
+        /**
+         * @param index
+         * @param cells the puzzle's values; reused for the next puzzle
+         * @param valid false if the record has a value above 9
+         * @throws Exception
+         */
+        void accept(long index, int[] cells, boolean valid) throws Exception;
+    }
+
+    /**
+     * Go through a range of puzzles in order.
+     * @param from first index
+     * @param to index after the last one
+     * @param consumer
+     * @throws Exception whatever the consumer throws
+     */
+    public void forEach(long from, long to, PuzzleConsumer consumer) throws Exception{
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        for (long i = from; i < to; i++){
+            boolean valid = get(i, cells);
+            consumer.accept(i, cells, valid);
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        // The mappings go away with the buffers; closing the channel just
+        // stops new ones being made
+        channel.close();
+    }
+
+    /**
+     * Convert a text file with one puzzle per line into a corpus. Blank
+     * lines are skipped.
+     * @param input
+     * @param output
+     * @return the number of puzzles written
+     * @throws IOException if a line isn't a valid puzzle
+     */
+    public static long convert(Reader input, OutputStream output) throws IOException{
+        BufferedReader reader = new BufferedReader(input, 1 << 16);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        out.writeInt(MAGIC);
+
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        byte[] record = new byte[RECORD_SIZE];
+        long count = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null){
+            lineNumber++;
+            if (line.trim().isEmpty()){
+                continue;
+            }
+            if (!PuzzleFormat.parse(line, cells)){
+                throw new IOException("Line " + lineNumber + " is not a valid puzzle");
+            }
+            for (int i = 0; i < PuzzleFormat.LENGTH; i += 2){
+                int high = (i + 1 < PuzzleFormat.LENGTH) ? cells[i + 1] : 0;
+                record[i/2] = (byte) (cells[i] | (high << 4));
+            }
+            out.write(record);
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception{
+        if (args.length != 2){
+            System.err.println("Usage: PuzzleCorpus [input|-] output");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        long count;
+        try (Reader reader = new InputStreamReader(args[0].equals("-") ? System.in :
+                    Files.newInputStream(Paths.get(args[0])), StandardCharsets.US_ASCII);
+             OutputStream out = Files.newOutputStream(Paths.get(args[1]))){
+            count = convert(reader, out);
+        }
+        System.err.printf("Converted %d puzzles in %.2f s%n", count, (System.nanoTime() - start)/1e9);
+    }
+}
@@ -0,0 +1,57 @@
+package sudoku.batch;
+
+/**
+ * The common text format for puzzles: 81 characters in row-major order, 
+ * with '.' or '0' for empty cells.
+ */
+public final class PuzzleFormat {
+    
+    public static final int LENGTH = 81;
+    
+    private PuzzleFormat(){
+    }
+    
+    /**
+     * Read a puzzle line into an array of values.
+     * @param line
+     * @param cells where to put the 81 values, 0 for empty
+     * @return false if the line isn't a valid puzzle
+     */
+    public static boolean parse(CharSequence line, int[] cells){
+        int length = line.length();
+        while (length > 0 && Character.isWhitespace(line.charAt(length - 1))){
+            length--;
+        }
+        if (length != LENGTH){
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++){
+            char c = line.charAt(i);
+            if (c == '.' || c == '0'){
+                cells[i] = 0;
+            } else if ('1' <= c && c <= '9'){
+                cells[i] = c - '0';
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Write values out as a puzzle line (without a line break).
+     * @param cells
+     * @param out 
+     */
+    public static void format(int[] cells, StringBuilder out){
+        for (int i = 0; i < LENGTH; i++){
+            out.append(cells[i] == 0 ? '.' : (char) ('0' + cells[i]));
+        }
+    }
+    
+    public static String format(int[] cells){
+        StringBuilder builder = new StringBuilder(LENGTH);
+        format(cells, builder);
+        return builder.toString();
+    }
+}
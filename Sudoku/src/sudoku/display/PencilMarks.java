@@ -0,0 +1,118 @@
+package sudoku.display;
+
+import sudoku.grid.Grid;
+import sudoku.grid.Topology;
+
+/**
+ * The candidates the display shows for each empty cell: every value that
+ * isn't already in one of its groups, counting the player's values as well as
+ * the game's. Each group keeps a count of every value in it, so changing a
+ * cell only means looking again at the cells that share a group with it.
+ *
+ * Candidate masks use bit (v-1) for value v, like the grid's.
+ */
+class PencilMarks {
+
+    private final Topology topology;
+    private final int size;
+
+    // What we last saw in each cell, 0 if it's empty
+    private final int[] values;
+
+    // How many of each value a group has, at group*size + (v-1), and the
+    // values it has at least one of; groups are numbered rows, columns, then
+    // squares like the grid's
+    private final int[] counts;
+    private final int[] used;
+
+    // Candidates for each cell, 0 for cells with a value
+    private final int[] candidates;
+
+    /**
+     * Work out the candidates for every cell of a grid.
+     * @param grid
+     */
+    PencilMarks(Grid grid){
+        topology = grid.getTopology();
+        size = topology.size;
+        values = new int[topology.cellCount];
+        counts = new int[topology.groupCount*size];
+        used = new int[topology.groupCount];
+        candidates = new int[topology.cellCount];
+
+        for (int i = 0; i < values.length; i++){
+            int value = grid.getDigitAt(i/size, i%size);
+            values[i] = value;
+            if (value != 0){
+                count(i, value, 1);
+            }
+        }
+        for (int i = 0; i < candidates.length; i++){
+            update(i);
+        }
+    }
+
+    /**
+     * Catch up with a cell's value, updating the candidates of every cell it
+     * shares a group with.
+     * @param row
+     * @param col
+     * @param value the cell's value, 0 if it's empty
+     */
+    void set(int row, int col, int value){
+        int cell = row*size + col;
+        if (values[cell] == value){
+            return;
+        }
+        if (values[cell] != 0){
+            count(cell, values[cell], -1);
+        }
+        if (value != 0){
+            count(cell, value, 1);
+        }
+        values[cell] = value;
+
+        int box = topology.boxSize;
+        int firstRow = (row/box)*box;
+        int firstCol = (col/box)*box;
+        for (int i = 0; i < size; i++){
+            update(row*size + i);
+            update(i*size + col);
+            update((firstRow + i/box)*size + firstCol + i%box);
+        }
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return the cell's candidates, or 0 if it has a value
+     */
+    int getCandidates(int row, int col){
+        return candidates[row*size + col];
+    }
+
+    private void count(int cell, int value, int change){
+        int row = cell/size;
+        int col = cell%size;
+        countIn(row, value, change);
+        countIn(size + col, value, change);
+        countIn(2*size + topology.getSquare(row, col), value, change);
+    }
+
+    private void countIn(int group, int value, int change){
+        int count = counts[group*size + value - 1] += change;
+        int bit = 1 << (value - 1);
+        used[group] = (count > 0) ? used[group] | bit : used[group] & ~bit;
+    }
+
+    private void update(int cell){
+        if (values[cell] != 0){
+            candidates[cell] = 0;
+            return;
+        }
+        int row = cell/size;
+        int col = cell%size;
+        int taken = used[row] | used[size + col] | used[2*size + topology.getSquare(row, col)];
+        candidates[cell] = topology.allValues & ~taken;
+    }
+}
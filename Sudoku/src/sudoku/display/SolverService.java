@@ -0,0 +1,240 @@
+package sudoku.display;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import sudoku.grid.Grid;
+import sudoku.grid.SolveBudget;
+import sudoku.grid.SolveStatus;
+
+/**
+ * Solves grids for the display in the background. The grid is copied when
+ * the solve is asked for and the copy is solved on a worker, so the grid on
+ * screen is only ever touched from the event thread, where the solution is
+ * filled in afterwards (and where the futures complete).
+ *
+ * The answer can also be worked out without filling the grid in, so the 
+ * player's entries can be checked against it.
+ *
+ * Asking again for a grid that's already being solved gets the same future.
+ * The workers are a small fixed pool, with virtual threads if the JVM has
+ * them, and only so many solves can wait for one.
+ *
+ * Everything here should be called from the event thread.
+ */
+public class SolverService {
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 8;
+
+    private final Executor workers;
+
+    // Solves that haven't finished yet, by the grid they're for
+    private final Map<Grid, Request> inFlight = new IdentityHashMap<>();
+
+    private static class Request {
+        final SolveBudget budget = new SolveBudget();
+        final CompletableFuture<SolveStatus> future = new CompletableFuture<>();
+    }
+
+    public SolverService(){
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param threads the most grids solved at once
+     * @param queueSize the most solves waiting for a thread; any more are
+     * turned down
+     */
+    public SolverService(int threads, int queueSize){
+        this(new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory()));
+        ((ThreadPoolExecutor) workers).allowCoreThreadTimeOut(true);
+    }
+
+    SolverService(Executor workers){
+        this.workers = workers;
+    }
+
+    /**
+     * Virtual threads (Java 21 on) if we can get them, otherwise daemon
+     * threads; looked up by reflection since we build for Java 8.
+     * @return
+     */
+    private static ThreadFactory threadFactory(){
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builder.getClass().getMethod("name", String.class, long.class)
+                    .invoke(builder, "solver-", 0L);
+            return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return runnable -> {
+                Thread thread = new Thread(runnable, "solver");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * Solve a grid in the background, filling it in on the event thread once
+     * it's done.
+     * @param grid
+     * @return how the solve ended; completes on the event thread
+     */
+    public CompletableFuture<SolveStatus> solve(Grid grid){
+        Request running = inFlight.get(grid);
+        if (running != null){
+            return running.future;
+        }
+
+        Request request = new Request();
+        Grid copy;
+        try {
+            copy = new Grid(grid);
+        } catch (Exception ex) {
+            request.future.completeExceptionally(ex);
+            return request.future;
+        }
+
+        inFlight.put(grid, request);
+        try {
+            workers.execute(() -> solve(grid, copy, request));
+        } catch (RuntimeException ex) {
+            // Too many waiting already
+            inFlight.remove(grid);
+            request.future.completeExceptionally(ex);
+        }
+        return request.future;
+    }
+
+    /**
+     * On a worker: solve the copy, then hand the answer to the event thread.
+     */
+    private void solve(Grid grid, Grid copy, Request request){
+        try {
+            SolveStatus status = copy.solve1(request.budget);
+            int[] values = new int[copy.getTopology().cellCount];
+            copy.copyValuesTo(values);
+            SwingUtilities.invokeLater(() -> finish(grid, request, status, values));
+        } catch (Exception ex) {
+            SwingUtilities.invokeLater(() -> {
+                inFlight.remove(grid);
+                request.future.completeExceptionally(ex);
+            });
+        }
+    }
+
+    private void finish(Grid grid, Request request, SolveStatus status, int[] values){
+        inFlight.remove(grid);
+        try {
+            if (status == SolveStatus.SOLVED && !grid.fillFrom(values)){
+                // The grid was changed into something else while we were busy
+                status = SolveStatus.UNSOLVABLE;
+            }
+            request.future.complete(status);
+        } catch (Exception ex) {
+            request.future.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Count a grid's solutions in the background, stopping at the limit.
+     * @param grid
+     * @param limit
+     * @return how many solutions there are, at most limit; completes on the
+     * event thread
+     */
+    public CompletableFuture<Integer> countSolutions(Grid grid, int limit){
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        try {
+            Grid copy = new Grid(grid);
+            workers.execute(() -> {
+                try {
+                    int count = copy.countSolutions(limit);
+                    SwingUtilities.invokeLater(() -> future.complete(count));
+                } catch (RuntimeException ex) {
+                    SwingUtilities.invokeLater(() -> future.completeExceptionally(ex));
+                }
+            });
+        } catch (Exception ex) {
+            // Including too many waiting already
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+    
+    /**
+     * Work out a grid's solution in the background, leaving the grid alone.
+     * @param grid
+     * @param budget for stopping it early
+     * @return the value of every cell in row-major order; completes on the 
+     * event thread, or fails if the grid wasn't solved
+     */
+    public CompletableFuture<byte[]> solution(Grid grid, SolveBudget budget){
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        try {
+            Grid copy = new Grid(grid);
+            workers.execute(() -> solution(copy, budget, future));
+        } catch (Exception ex) {
+            // Including too many waiting already
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+    
+    /**
+     * On a worker: solve the copy, keeping just its digits.
+     */
+    private void solution(Grid copy, SolveBudget budget, CompletableFuture<byte[]> future){
+        try {
+            SolveStatus status = copy.solve1(budget);
+            if (status != SolveStatus.SOLVED){
+                throw new Exception("Couldn't solve the grid: " + status);
+            }
+            int size = copy.getTopology().size;
+            byte[] digits = new byte[size*size];
+            for (int i = 0; i < digits.length; i++){
+                digits[i] = (byte) copy.getDigitAt(i/size, i%size);
+            }
+            SwingUtilities.invokeLater(() -> future.complete(digits));
+        } catch (Exception ex) {
+            SwingUtilities.invokeLater(() -> future.completeExceptionally(ex));
+        }
+    }
+
+    /**
+     * Stop solving a grid, if it's being solved.
+     * @param grid
+     */
+    public void cancel(Grid grid){
+        Request running = inFlight.get(grid);
+        if (running != null){
+            running.budget.cancel();
+        }
+    }
+
+    /**
+     * @param grid
+     * @return whether the grid is being solved
+     */
+    public boolean isSolving(Grid grid){
+        return inFlight.containsKey(grid);
+    }
+
+    public void shutdown(){
+        for (Request request : inFlight.values()){
+            request.budget.cancel();
+        }
+        if (workers instanceof ExecutorService){
+            ((ExecutorService) workers).shutdown();
+        }
+    }
+}
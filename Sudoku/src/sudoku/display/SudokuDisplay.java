@@ -3,14 +3,20 @@ package sudoku.display;
 import java.awt.Dimension;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import javax.swing.JFileChooser;
 import javax.swing.JTable;
 import sudoku.grid.Grid;
+import sudoku.grid.SolveStatus;
 
 /**
  *
  * @author xoab
  */
 public class SudokuDisplay extends javax.swing.JFrame {
+    
+    // Remembers the last folder games were saved to or loaded from
+    private final JFileChooser gameChooser = new JFileChooser();
+    
     /**
      * Creates new form AppDisplay
      */
@@ -76,6 +82,10 @@ public class SudokuDisplay extends javax.swing.JFrame {
         newGameButton = new javax.swing.JButton();
         clearGridButton = new javax.swing.JButton();
         setGridButton = new javax.swing.JButton();
+        saveGameButton = new javax.swing.JButton();
+        loadGameButton = new javax.swing.JButton();
+        cancelButton = new javax.swing.JButton();
+        pencilMarksCheckBox = new javax.swing.JCheckBox();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
         getContentPane().setLayout(new java.awt.GridBagLayout());
@@ -142,6 +152,46 @@ public class SudokuDisplay extends javax.swing.JFrame {
         gridBagConstraints.insets = new java.awt.Insets(0, 10, 0, 10);
         controlPanel.add(setGridButton, gridBagConstraints);
 
+        saveGameButton.setFont(new java.awt.Font("Ubuntu", 1, 20)); // NOI18N
+        saveGameButton.setText("Save Game");
+        saveGameButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                saveGameButtonActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.insets = new java.awt.Insets(0, 10, 0, 10);
+        controlPanel.add(saveGameButton, gridBagConstraints);
+
+        loadGameButton.setFont(new java.awt.Font("Ubuntu", 1, 20)); // NOI18N
+        loadGameButton.setText("Load Game");
+        loadGameButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                loadGameButtonActionPerformed(evt);
+            }
+        });
+        controlPanel.add(loadGameButton, new java.awt.GridBagConstraints());
+
+        cancelButton.setFont(new java.awt.Font("Ubuntu", 1, 20)); // NOI18N
+        cancelButton.setText("Cancel");
+        cancelButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                cancelButtonActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.insets = new java.awt.Insets(0, 10, 0, 10);
+        controlPanel.add(cancelButton, gridBagConstraints);
+
+        pencilMarksCheckBox.setFont(new java.awt.Font("Ubuntu", 1, 20)); // NOI18N
+        pencilMarksCheckBox.setText("Pencil Marks");
+        pencilMarksCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                pencilMarksCheckBoxActionPerformed(evt);
+            }
+        });
+        controlPanel.add(pencilMarksCheckBox, new java.awt.GridBagConstraints());
+
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
         gridBagConstraints.gridy = 1;
@@ -154,32 +204,62 @@ public class SudokuDisplay extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void solverButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_solverButtonActionPerformed
-        new Thread(() ->  {
-            try {
-                this.sudokuTable.solve();
-            } catch (Exception ex) {
+        this.sudokuTable.solve().whenComplete((status, ex) -> {
+            if (ex != null) {
                System.out.println("Solver's got problems, I'm afraid you're on your own.");
                ex.printStackTrace();
+            } else if (status == SolveStatus.CANCELLED) {
+                System.out.println("Stopped solving");
+            } else if (status != SolveStatus.SOLVED) {
+                System.out.println("Couldn't solve the grid: " + status);
             }
-        }).start();
+        });
     }//GEN-LAST:event_solverButtonActionPerformed
 
+    private void cancelButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_cancelButtonActionPerformed
+        sudokuTable.cancelSolve();
+    }//GEN-LAST:event_cancelButtonActionPerformed
+
+    private void pencilMarksCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_pencilMarksCheckBoxActionPerformed
+        sudokuTable.setShowCandidates(pencilMarksCheckBox.isSelected());
+    }//GEN-LAST:event_pencilMarksCheckBoxActionPerformed
+
     private void clearGridButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_clearGridButtonActionPerformed
         sudokuTable.clear();
     }//GEN-LAST:event_clearGridButtonActionPerformed
 
     private void newGameButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_newGameButtonActionPerformed
-        try {
-            sudokuTable.startNewGame();
-        } catch (Exception ex) {
-            System.out.println("Unable to start a new game");
-        }
+        sudokuTable.startNewGame().whenComplete((grid, ex) -> {
+            if (ex != null) {
+                System.out.println("Unable to start a new game");
+            }
+        });
     }//GEN-LAST:event_newGameButtonActionPerformed
 
     private void setGridButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_setGridButtonActionPerformed
         sudokuTable.setGrid();
     }//GEN-LAST:event_setGridButtonActionPerformed
 
+    private void saveGameButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_saveGameButtonActionPerformed
+        if (gameChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                sudokuTable.saveGame(gameChooser.getSelectedFile().toPath());
+            } catch (Exception ex) {
+                System.out.println("Unable to save the game");
+            }
+        }
+    }//GEN-LAST:event_saveGameButtonActionPerformed
+
+    private void loadGameButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_loadGameButtonActionPerformed
+        if (gameChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                sudokuTable.loadGame(gameChooser.getSelectedFile().toPath());
+            } catch (Exception ex) {
+                System.out.println("Unable to load the game");
+            }
+        }
+    }//GEN-LAST:event_loadGameButtonActionPerformed
+
     /**
      * @param args the command line arguments
      */
@@ -195,10 +275,14 @@ public class SudokuDisplay extends javax.swing.JFrame {
     }
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JButton cancelButton;
     private javax.swing.JButton clearGridButton;
     private javax.swing.JPanel controlPanel;
     private javax.swing.JScrollPane jScrollPane1;
+    private javax.swing.JButton loadGameButton;
     private javax.swing.JButton newGameButton;
+    private javax.swing.JCheckBox pencilMarksCheckBox;
+    private javax.swing.JButton saveGameButton;
     private javax.swing.JButton setGridButton;
     private javax.swing.JButton solverButton;
     private sudoku.display.SudokuTable sudokuTable;
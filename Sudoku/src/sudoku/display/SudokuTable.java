@@ -3,22 +3,36 @@ package sudoku.display;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.DefaultCellEditor;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JTable;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.border.LineBorder;
 import javax.swing.border.MatteBorder;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.TableCellRenderer;
-import sudoku.grid.Cell;
-import static sudoku.grid.Cell.VALID_VALUES;
+import sudoku.grid.CellSet;
+import sudoku.grid.Difficulty;
 import sudoku.grid.Grid;
+import sudoku.grid.GridSnapshot;
+import sudoku.grid.PuzzlePool;
+import sudoku.grid.SolveBudget;
+import sudoku.grid.SolveStatus;
+import sudoku.grid.Topology;
 
 /**
  *
@@ -26,40 +40,208 @@ import sudoku.grid.Grid;
  */
 public class SudokuTable extends JTable implements PropertyChangeListener {
     
+    // Sides of a cell that get a thick border, and the border for each mix
+    private static final int TOP_EDGE = 1;
+    private static final int LEFT_EDGE = 2;
+    private static final int BOTTOM_EDGE = 4;
+    private static final int RIGHT_EDGE = 8;
+    private static final MatteBorder[] BORDERS = new MatteBorder[16];
+    static {
+        for (int edges = 1; edges < BORDERS.length; edges++){
+            BORDERS[edges] = new MatteBorder(
+                    (edges & TOP_EDGE) != 0 ? 2 : 0, (edges & LEFT_EDGE) != 0 ? 2 : 0, 
+                    (edges & BOTTOM_EDGE) != 0 ? 2 : 0, (edges & RIGHT_EDGE) != 0 ? 2 : 0, 
+                    Color.BLACK);
+        }
+    }
+    
+    private static final Font PLAIN_FONT = new Font("SansSerif", Font.PLAIN, 20);
+    private static final Font GIVEN_FONT = new Font("SansSerif", Font.BOLD, 20);
+    
+    // Pencil marks, smaller when there are more of them to fit in a cell; 
+    // by box size
+    private static final Font[] CANDIDATE_FONTS = new Font[Topology.MAX_BOX_SIZE + 1];
+    static {
+        int[] sizes = {0, 0, 14, 11, 9, 8};
+        for (int box = Topology.MIN_BOX_SIZE; box <= Topology.MAX_BOX_SIZE; box++){
+            CANDIDATE_FONTS[box] = new Font("SansSerif", Font.PLAIN, sizes[box]);
+        }
+    }
+    
+    // What to show for each value, up to the biggest grids
+    private static final String[] DIGITS = new String[Topology.MAX_SIZE + 1];
+    static {
+        DIGITS[0] = "";
+        for (int value = 1; value < DIGITS.length; value++){
+            DIGITS[value] = Integer.toString(value);
+        }
+    }
+    
     private final SudokuTableModel model;
     
+    // Every cell is drawn by the same renderer
+    private final SudokuRenderer renderer = new SudokuRenderer();
+    
+    // Cells the grid has placed that haven't been repainted yet, and whether
+    // a repaint is on its way; the grid can tell us from any thread, so 
+    // they're guarded by the set
+    private final CellSet changedCells = new CellSet(Topology.MAX_SIZE*Topology.MAX_SIZE);
+    private boolean repaintQueued = false;
+    
+    // Whether empty cells show their candidates
+    private boolean showCandidates = false;
+    
+    // The grid's answer, one digit per cell in row-major order, worked out in
+    // the background whenever a grid's set; null until it's ready, or if 
+    // the grid doesn't have exactly one
+    private byte[] solution;
+    private SolveBudget solutionBudget;
+    
+    // New games come from here so we don't have to wait for the generator;
+    // the size and number of workers can be set with system properties
+    private final PuzzlePool puzzlePool = new PuzzlePool(
+            Integer.getInteger("sudoku.pool.size", PuzzlePool.DEFAULT_CAPACITY),
+            Integer.getInteger("sudoku.pool.workers", PuzzlePool.DEFAULT_WORKERS));
+    
+    // Solves happen here rather than on the event thread
+    private final SolverService solverService = new SolverService(
+            Integer.getInteger("sudoku.solver.threads", SolverService.DEFAULT_THREADS),
+            Integer.getInteger("sudoku.solver.queue", SolverService.DEFAULT_QUEUE_SIZE));
+    
     public SudokuTable(){
         model = new SudokuTableModel();
         this.setModel(model);
         this.setDefaultEditor(Integer.class, new SudokuEditor());
+        puzzlePool.start();
     }
     
     @Override
     public TableCellRenderer getCellRenderer(int row, int column) {
-        return new SudokuRenderer();
-    };
+        return renderer;
+    }
+    
+    /**
+     * Show the values that could go in each empty cell, or stop showing them.
+     * The candidates are kept up to date either way, so this just repaints.
+     * @param showCandidates 
+     */
+    public void setShowCandidates(boolean showCandidates){
+        this.showCandidates = showCandidates;
+        repaint();
+    }
+    
+    public boolean isShowCandidates(){
+        return showCandidates;
+    }
+    
+    /**
+     * When the player changes a cell, the pencil marks of its row, column 
+     * and square may change with it.
+     * @param e 
+     */
+    @Override
+    public void tableChanged(TableModelEvent e){
+        super.tableChanged(e);
+        if (showCandidates && e.getType() == TableModelEvent.UPDATE 
+                && e.getFirstRow() == e.getLastRow() && e.getColumn() != TableModelEvent.ALL_COLUMNS){
+            repaintCell(e.getFirstRow(), e.getColumn());
+        }
+    }
 
     /**
      * Set the grid for the game, meaning we should display its values.
      * @param grid 
      */
     public void setGrid(Grid grid){
+        forgetGrid();
         model.setGrid(grid);
         
         // Listen for cell changes
         grid.addPropertyChangeListener(this);
+        findSolution();
     }
     
     /**
      * Set the grid based on the gui.
      */
     public void setGrid(){
+        forgetGrid();
         model.setGrid();
         model.grid.addPropertyChangeListener(this);
+        findSolution();
     }
     
-    public void solve() throws Exception{
-        this.model.solve();
+    // Stop listening to the grid we're replacing, and stop solving it
+    private void forgetGrid(){
+        if (model.grid != null){
+            model.grid.removePropertyChangeListener(this);
+            solverService.cancel(model.grid);
+        }
+        solution = null;
+        if (solutionBudget != null){
+            solutionBudget.cancel();
+            solutionBudget = null;
+        }
+    }
+    
+    /**
+     * Count the solutions of the grid we've just been given in the 
+     * background, then work out the answer if it has just the one; both are
+     * dropped if the grid's replaced first.
+     */
+    private void findSolution(){
+        Grid grid = model.grid;
+        SolveBudget budget = new SolveBudget();
+        solutionBudget = budget;
+        solverService.countSolutions(grid, 2).thenCompose(count -> {
+            if (model.grid != grid){
+                return CompletableFuture.completedFuture(null);
+            }
+            model.setSolutionCount(count);
+            if (count != 1){
+                return CompletableFuture.completedFuture(null);
+            }
+            return solverService.solution(grid, budget);
+        }).thenAccept(digits -> {
+            if (digits != null && model.grid == grid){
+                solution = digits;
+            }
+        });
+    }
+    
+    /**
+     * @return whether the grid's answer is ready to check entries against
+     */
+    public boolean hasSolution(){
+        return solution != null;
+    }
+    
+    /**
+     * Check an entry against the grid's answer; only good once 
+     * {@link #hasSolution()}.
+     * @param row
+     * @param col
+     * @param value
+     * @return whether it's the value that goes in the cell
+     */
+    public boolean isSolution(int row, int col, int value){
+        return solution[row*model.getColumnCount() + col] == value;
+    }
+    
+    /**
+     * Solve the grid in the background; the values show up once it's solved.
+     * Asking again while it's being solved doesn't start another solve.
+     * @return how the solve ended, completed on the event thread
+     */
+    public CompletableFuture<SolveStatus> solve(){
+        return solverService.solve(model.grid);
+    }
+    
+    /**
+     * Stop solving the grid, if it's being solved.
+     */
+    public void cancelSolve(){
+        solverService.cancel(model.grid);
     }
     
     /**
@@ -72,26 +254,116 @@ public class SudokuTable extends JTable implements PropertyChangeListener {
     
     /**
      * Make a grid with random numbers to be played.
-     * @throws java.lang.Exception
+     * @return the new grid, once it's showing
      */
-    public void startNewGame() throws Exception{
-        Grid grid = new Grid(30);
-        this.setGrid(grid);
+    public CompletableFuture<Grid> startNewGame(){
+        return startNewGame(Difficulty.MEDIUM);
+    }
+    
+    /**
+     * Make a grid to be played at some difficulty. It's usually waiting in
+     * the pool, but if not it's made in the background and shows up when 
+     * it's ready.
+     * @param difficulty
+     * @return the new grid, once it's showing; completes on the event thread
+     */
+    public CompletableFuture<Grid> startNewGame(Difficulty difficulty){
+        return puzzlePool.takeGrid(difficulty).thenApplyAsync(grid -> {
+            this.setGrid(grid);
+            return grid;
+        }, SwingUtilities::invokeLater);
+    }
+    
+    /**
+     * Save the game in progress, the player's values included.
+     * @param file
+     * @throws IOException 
+     */
+    public void saveGame(Path file) throws IOException{
+        GridSnapshot.save(model.grid, file);
+    }
+    
+    /**
+     * Carry on with a game saved by {@link #saveGame(Path)}.
+     * @param file
+     * @throws Exception 
+     */
+    public void loadGame(Path file) throws Exception{
+        this.setGrid(GridSnapshot.load(file));
+    }
+    
+    public PuzzlePool getPuzzlePool(){
+        return puzzlePool;
     }
 
     @Override
     public void propertyChange(PropertyChangeEvent pce) {
-        // If we get this, we're solving internally so don't need to 
-        // runthe table setValueAt
-        if (pce.getPropertyName().equals(Grid.NEW_CELL_VALUE)){
-            Cell cell = (Cell) pce.getNewValue();
-            this.setValueAt(cell.getValue(), cell.row, cell.col);
-            this.repaint();
+        // The values are already in the grid, which is where the model 
+        // reads them from, so the cells just need drawing again, on the 
+        // event thread. However many batches come in before it gets to them,
+        // it only goes through them once.
+        if (pce.getPropertyName().equals(Grid.CELLS_CHANGED)){
+            synchronized (changedCells){
+                changedCells.addAll((CellSet) pce.getNewValue());
+                if (repaintQueued){
+                    return;
+                }
+                repaintQueued = true;
+            }
+            SwingUtilities.invokeLater(this::repaintChangedCells);
+        }
+    }
+    
+    /**
+     * Repaint just the cells that have changed since we last did.
+     */
+    private void repaintChangedCells(){
+        int size = model.getRowCount();
+        synchronized (changedCells){
+            repaintQueued = false;
+            
+            // Anything past the end is from a bigger grid we've replaced
+            for (int i = changedCells.first(); i >= 0 && i < size*size; i = changedCells.next(i + 1)){
+                model.cellChanged(i/size, i%size);
+                repaintCell(i/size, i%size);
+            }
+            changedCells.clear();
+        }
+    }
+    
+    /**
+     * Repaint a cell that's changed, along with its row, column and square
+     * if they're showing candidates.
+     */
+    private void repaintCell(int row, int col){
+        if (!showCandidates){
+            repaint(getCellRect(row, col, false));
+            return;
         }
+        Rectangle cell = getCellRect(row, col, true);
+        repaint(0, cell.y, getWidth(), cell.height);
+        repaint(cell.x, 0, cell.width, getHeight());
+        int box = model.grid.getTopology().boxSize;
+        int firstRow = (row/box)*box;
+        int firstCol = (col/box)*box;
+        Rectangle square = getCellRect(firstRow, firstCol, true);
+        square.add(getCellRect(firstRow + box - 1, firstCol + box - 1, true));
+        repaint(square);
     }
     
+    /**
+     * Draws every cell of the table, so there's only the one. Everything it
+     * sets on itself comes from the tables below, and it doesn't tell anyone
+     * about the changes (like DefaultTableCellRenderer), so painting the 
+     * table makes no garbage.
+     */
     public class SudokuRenderer extends JLabel implements TableCellRenderer {
 
+        // Pencil marks for the cell being drawn, and how big its squares are
+        private int candidates;
+        private int box;
+        private final Insets insets = new Insets(0, 0, 0, 0);
+        
         public SudokuRenderer() {
             setOpaque(true); // so the background shows up
             setHorizontalAlignment(SwingConstants.CENTER);
@@ -99,52 +371,98 @@ public class SudokuTable extends JTable implements PropertyChangeListener {
 
         @Override
         public Component getTableCellRendererComponent(
-                                JTable table, Object color,
+                                JTable table, Object value,
                                 boolean isSelected, boolean hasFocus,
                                 int row, int column) {
                         
-            // We'll have to render based on whether the cell has 1 or 2 borders
-            if ((row%3) == 0 && (column%3 == 1)){
-                setBorder(new MatteBorder(2,0,0,0, Color.BLACK));
-            }
-            if ((row%3) == 2 && (column%3 == 1)){
-                setBorder(new MatteBorder(0,0,2,0, Color.BLACK));
-            }
-            if ((row%3) == 1 && (column%3 == 0)){
-                setBorder(new MatteBorder(0,2,0,0, Color.BLACK));
-            }
-            if ((row%3) == 1 && (column%3 == 2)){
-                setBorder(new MatteBorder(0,0,0,2, Color.BLACK));
-            }
-            if ((row%3) == 0 && (column%3 == 0)){
-                setBorder(new MatteBorder(2,2,0,0, Color.BLACK));
-            }
-            if ((row%3) == 2 && (column%3 == 2)){
-                setBorder(new MatteBorder(0,0,2,2, Color.BLACK));
-            }
-            if ((row%3) == 0 && (column%3 == 2)){
-                setBorder(new MatteBorder(2,0,0,2, Color.BLACK));
-            }
-            if ((row%3) == 2 && (column%3 == 0)){
-                setBorder(new MatteBorder(0,2,2,0, Color.BLACK));
-            }
+            // Cells on the edge of a square get a thick border on that side
+            box = model.grid.getTopology().boxSize;
+            int squareRow = row%box;
+            int squareCol = column%box;
+            int edges = (squareRow == 0 ? TOP_EDGE : 0) | (squareCol == 0 ? LEFT_EDGE : 0)
+                    | (squareRow == box - 1 ? BOTTOM_EDGE : 0) | (squareCol == box - 1 ? RIGHT_EDGE : 0);
+            setBorder(BORDERS[edges]);
             
             // Default will be white background with plain text
-            this.setBackground(Color.WHITE);
-            this.setFont(new Font("SansSerif", Font.PLAIN, 20));
-            
-            if(table.getValueAt(row, column) != null){
-                this.setText(table.getValueAt(row, column).toString());
+            if (value == null){
+                setText(DIGITS[0]);
+                setBackground(Color.WHITE);
+                setFont(PLAIN_FONT);
+                candidates = showCandidates ? model.getCandidates(row, column) : 0;
+            } else {
+                candidates = 0;
+                setText(DIGITS[(Integer) value]);
                 
                 // Different rendering for "original" values
-                if (!table.isCellEditable(row, column)){
-                    this.setBackground(Color.LIGHT_GRAY);
-                    this.setFont(new Font("SansSerif", Font.BOLD, 20));
-                }
+                boolean given = !table.isCellEditable(row, column);
+                setBackground(given ? Color.LIGHT_GRAY : Color.WHITE);
+                setFont(given ? GIVEN_FONT : PLAIN_FONT);
             }
 
             return this;
         }
+        
+        /**
+         * Draw the cell, then any pencil marks in a little grid of their own,
+         * each value in its place like the numbers on a phone.
+         * @param g 
+         */
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (candidates == 0){
+                return;
+            }
+            
+            getInsets(insets);
+            int width = (getWidth() - insets.left - insets.right)/box;
+            int height = (getHeight() - insets.top - insets.bottom)/box;
+            g.setColor(Color.GRAY);
+            g.setFont(CANDIDATE_FONTS[box]);
+            FontMetrics metrics = g.getFontMetrics();
+            int baseline = (height + metrics.getAscent() - metrics.getDescent())/2;
+            for (int left = candidates; left != 0; left &= left - 1){
+                int position = Integer.numberOfTrailingZeros(left);
+                String digit = DIGITS[position + 1];
+                int x = insets.left + (position%box)*width + (width - metrics.stringWidth(digit))/2;
+                int y = insets.top + (position/box)*height + baseline;
+                g.drawString(digit, x, y);
+            }
+        }
+        
+        // Nothing's listening to a renderer, and it's never really in the
+        // table, so there's nothing to fire, lay out or repaint
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        }
+        
+        @Override
+        public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+        }
+        
+        @Override
+        public void invalidate() {
+        }
+        
+        @Override
+        public void validate() {
+        }
+        
+        @Override
+        public void revalidate() {
+        }
+        
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+        }
+        
+        @Override
+        public void repaint(Rectangle r) {
+        }
+        
+        @Override
+        public void repaint() {
+        }
     }
     
     /**
@@ -207,8 +525,13 @@ public class SudokuTable extends JTable implements PropertyChangeListener {
                 int row = table.getEditingRow();
                 int col = table.getEditingColumn();
 
-                if(!VALID_VALUES.contains(editingValue) ||
-                   !table.model.grid.checkValueValidInGrid(row, col, editingValue)){
+                // Against the answer if it's ready, which rules out clashes
+                // and anything out of range too; if not (or there's more 
+                // than one), we can only check for clashes
+                boolean okay = table.hasSolution() 
+                        ? table.isSolution(row, col, editingValue)
+                        : table.model.grid.checkValueValidInGrid(row, col, editingValue);
+                if(!okay){
                     showCellError();
                     return false;
                 } else {
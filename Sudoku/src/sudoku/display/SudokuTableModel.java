@@ -2,22 +2,39 @@ package sudoku.display;
 
 import javax.swing.table.AbstractTableModel;
 import sudoku.grid.Grid;
+import sudoku.grid.Topology;
 
 /**
  * Make a specialized table model to interact with the underlying grid.
  */
 public class SudokuTableModel extends AbstractTableModel {
 
-    public Object data[][] = new Integer[9][9];
+    public static final int UNKNOWN_SOLUTIONS = -1;
+
     Grid grid = new Grid();
+    
+    // Candidates for the pencil marks, kept up to date as cells change
+    private PencilMarks marks = new PencilMarks(grid);
+    
+    // How many solutions the grid has (up to 2), counted in the background
+    // by the table; the empty grid we start with has plenty
+    private int solutionCount = 2;
 
     /**
-     * Set the underlying grid based on the gui.
+     * Set the underlying grid based on the gui, making every value shown a 
+     * given.
      */
     public void setGrid() {
         try {
-            Grid newGrid = new Grid((Integer[][]) this.data);
+            Topology topology = grid.getTopology();
+            int[] values = new int[topology.cellCount];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = grid.getDigitAt(i/topology.size, i%topology.size);
+            }
+            Grid newGrid = Grid.of(topology, values);
             this.grid = newGrid;
+            this.marks = new PencilMarks(newGrid);
+            this.solutionCount = UNKNOWN_SOLUTIONS;
         } catch (Exception ex) {
             System.out.println("Unable to set the grid based on input");
         }
@@ -28,43 +45,72 @@ public class SudokuTableModel extends AbstractTableModel {
      * @param grid 
      */
     public void setGrid(Grid grid) {
+        boolean resized = grid.getTopology() != this.grid.getTopology();
         this.grid = grid;
+        this.marks = new PencilMarks(grid);
+        this.solutionCount = UNKNOWN_SOLUTIONS;
 
-        // Need to clear out some values and set others;
-        grid.getEmptyCells().forEach((pair) -> {
-            Integer row = (int) pair.getRow();
-            Integer col = (int) pair.getCol();
-
-            setValueAt(null, row, col);
-        });
-        grid.getFilledCells().forEach((pair, value) -> {
-            Integer row = (int) pair.getRow();
-            Integer col = (int) pair.getCol();
-
-            setValueAt(value, row, col);
-        });
+        // Every cell comes straight from the grid, so one event redraws the
+        // lot (including any of the player's values from a saved game)
+        if (resized) {
+            fireTableStructureChanged();
+        } else {
+            fireTableDataChanged();
+        }
     }
 
+    /**
+     * @return 0 if the grid has no solution, 1 if it has exactly one, 2 if
+     * it has more than one, or {@link #UNKNOWN_SOLUTIONS} if they haven't 
+     * been counted yet
+     */
+    public int getSolutionCount() {
+        return solutionCount;
+    }
+    
+    void setSolutionCount(int solutionCount) {
+        this.solutionCount = solutionCount;
+    }
+    
+    /**
+     * Catch up with a value the grid placed itself, like a solved cell.
+     * @param row
+     * @param col
+     */
+    void cellChanged(int row, int col) {
+        marks.set(row, col, grid.getDigitAt(row, col));
+    }
+    
+    /**
+     * @param row
+     * @param col
+     * @return the values that could go in the cell, as a mask with bit (v-1)
+     * for value v, or 0 if it has a value
+     */
+    public int getCandidates(int row, int col) {
+        return marks.getCandidates(row, col);
+    }
+    
     public void solve() throws Exception {
         this.grid.solve1();
     }
 
     /**
-     * We'll always have 9 rows and 9 columns in sudoku
-     * @return 9
+     * As many columns as the grid has, 9 for the usual sudoku
+     * @return 
      */
     @Override
     public int getColumnCount() {
-        return 9;
+        return grid.getTopology().size;
     }
 
     /**
-     * We'll always have 9 rows and 9 columns in sudoku
-     * @return 9
+     * As many rows as the grid has, 9 for the usual sudoku
+     * @return 
      */
     @Override
     public int getRowCount() {
-        return 9;
+        return grid.getTopology().size;
     }
 
     /**
@@ -77,10 +123,17 @@ public class SudokuTableModel extends AbstractTableModel {
         return null;
     }
 
+    /**
+     * Straight from the grid; digits come from the Integer cache, so 
+     * repainting doesn't make any garbage.
+     * @param row
+     * @param col
+     * @return the value, or null for an empty cell
+     */
     @Override
     public Object getValueAt(int row, int col) {
-        Object val = (grid.getValueAt(row, col) == null) ? null : grid.getValueAt(row, col);
-        return grid.getValueAt(row, col);
+        int digit = grid.getDigitAt(row, col);
+        return (digit == 0) ? null : Integer.valueOf(digit);
     }
 
     @Override
@@ -124,7 +177,8 @@ public class SudokuTableModel extends AbstractTableModel {
                         return;
                     }
                 }
-                if (!grid.checkValueValidInGrid(row, col, (Integer) value)) {
+                int digit = (Integer) value;
+                if (!grid.checkValueValidInGrid(row, col, digit)) {
                     System.out.println("Invalid number placement");
                     return;
                 }
@@ -132,14 +186,13 @@ public class SudokuTableModel extends AbstractTableModel {
                 // Since this is being set external to the Grid class, it 
                 // shouldn't affect the solver - won't change empty/filled
                 // cells, etc.
-                grid.getCellAt(row, col).setValue((Integer) value);
+                grid.getCellAt(row, col).setDigit(digit);
             }
         } else {
-            grid.getCellAt(row, col).setValue(null);
+            grid.getCellAt(row, col).setDigit(0);
         }
 
-        data[row][col] = value;
-
+        marks.set(row, col, grid.getDigitAt(row, col));
         fireTableCellUpdated(row, col);
     }
 }
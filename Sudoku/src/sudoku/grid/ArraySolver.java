@@ -0,0 +1,150 @@
+package sudoku.grid;
+
+/**
+ * Base for solvers that work on a plain int[] with a value for each of the 
+ * topology's cells (row-major, 0 for empty) rather than on a {@link Grid}. 
+ * The grid is only touched to read the starting values and to write the 
+ * answer back. Solvers that only handle 9x9 use {@link Topology#STANDARD}.
+ */
+public abstract class ArraySolver implements Solver {
+    
+    // Row/col/square of each cell index of a 9x9 grid, so we don't keep 
+    // dividing
+    static final int[] ROW = Topology.STANDARD.row;
+    static final int[] COL = Topology.STANDARD.col;
+    static final int[] SQUARE = Topology.STANDARD.square;
+    
+    // The size of grid we solve
+    final Topology topology;
+    
+    // Reused between calls to solve(Grid)
+    private final int[] cells;
+    
+    // Counters for the last solve or count
+    final SolverStats stats = new SolverStats();
+    
+    // Limits for the solve in progress, if it has any
+    SolveBudget budget;
+    
+    protected ArraySolver(){
+        this(Topology.STANDARD);
+    }
+    
+    protected ArraySolver(Topology topology){
+        this.topology = topology;
+        this.cells = new int[topology.cellCount];
+    }
+    
+    /**
+     * Solve the values in place.
+     * @param cells a value for each of the topology's cells in row-major
+     * order, 0 for empty
+     * @return whether a solution was found; if not, cells is left as it was
+     */
+    public abstract boolean solve(int[] cells);
+    
+    /**
+     * Solve the values in place, giving up once the budget is spent.
+     * @param cells a value for each of the topology's cells in row-major
+     * order, 0 for empty
+     * @param budget
+     * @return SOLVED, UNSOLVABLE, or why the budget ran out; cells are only
+     * changed if it's SOLVED
+     */
+    public SolveStatus solve(int[] cells, SolveBudget budget){
+        SolveBudget outer = this.budget;
+        this.budget = budget;
+        try {
+            return budget.statusFor(solve(cells));
+        } finally {
+            this.budget = outer;
+        }
+    }
+    
+    /**
+     * Called every {@link SolveBudget#CHECK_INTERVAL} search nodes or so.
+     * @param nodes
+     * @return whether to give up
+     */
+    boolean isSpent(long nodes){
+        return budget != null && budget.isSpent(nodes);
+    }
+    
+    /**
+     * Count the solutions, stopping as soon as we reach the limit; a limit
+     * of 2 is enough to tell a unique puzzle from an ambiguous one.
+     * @param cells a value for each of the topology's cells in row-major
+     * order, 0 for empty; left unchanged
+     * @param limit
+     * @return the number of solutions, at most limit
+     */
+    public abstract int countSolutions(int[] cells, int limit);
+    
+    /**
+     * Count the solutions for the values set internally in a grid.
+     * @param grid
+     * @param limit
+     * @return the number of solutions, at most limit
+     */
+    public int countSolutions(Grid grid, int limit){
+        load(grid);
+        return countSolutions(cells, limit);
+    }
+    
+    /**
+     * Solve values given the same way as {@link Grid#Grid(Integer[][])}.
+     * @param data values indexed data[row][col], null for empty
+     * @return the solution, or null if there isn't one
+     */
+    public Integer[][] solve(Integer[][] data){
+        int size = topology.size;
+        int[] values = new int[topology.cellCount];
+        for (int row = 0; row < size; row++){
+            for (int col = 0; col < size; col++){
+                values[row*size + col] = (data[row][col] == null) ? 0 : data[row][col];
+            }
+        }
+        if (!solve(values)){
+            return null;
+        }
+        
+        Integer[][] solution = new Integer[size][size];
+        for (int i = 0; i < values.length; i++){
+            solution[i/size][i%size] = values[i];
+        }
+        return solution;
+    }
+    
+    public Topology getTopology(){
+        return topology;
+    }
+    
+    private void load(Grid grid){
+        if (grid.topology != topology){
+            throw new IllegalArgumentException("Can't solve a " + grid.topology 
+                    + " grid with a " + topology + " solver");
+        }
+        grid.copyValuesTo(cells);
+    }
+    
+    @Override
+    public SolverStats getStats(){
+        return stats;
+    }
+    
+    @Override
+    public boolean solve(Grid grid) throws Exception{
+        load(grid);
+        return solve(cells) && grid.fillFrom(cells);
+    }
+    
+    @Override
+    public SolveStatus solve(Grid grid, SolveBudget budget) throws Exception{
+        load(grid);
+        SolveStatus status = solve(cells, budget);
+        if (status == SolveStatus.SOLVED && !grid.fillFrom(cells)){
+            return SolveStatus.UNSOLVABLE;
+        }
+        return status;
+    }
+}
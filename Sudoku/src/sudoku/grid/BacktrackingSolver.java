@@ -0,0 +1,225 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Depth-first search over a single mutable state. Each guess fills the empty 
+ * cell with the fewest candidates and pushes it on a trail; on a 
+ * contradiction we undo cells from the trail instead of throwing away cloned
+ * grids. All working arrays are allocated up front, so solving doesn't 
+ * allocate anything. Works for any size of grid.
+ */
+public class BacktrackingSolver extends ArraySolver {
+    
+    // Row/col/square of each cell index
+    private final int[] row;
+    private final int[] col;
+    private final int[] square;
+    
+    // Masks of the values used in each row/col/square
+    private final int[] rowUsed;
+    private final int[] colUsed;
+    private final int[] squareUsed;
+    
+    // The empty cells; the first "depth" of them are the filled-in trail
+    private final int[] trail;
+    private int numEmpty;
+    
+    // Candidates still to be tried for the cell at each depth, and whether
+    // there was more than one to start with
+    private final int[] untried;
+    private final boolean[] guessing;
+    
+    // If set, candidates are tried in random order rather than smallest first
+    Random random;
+    
+    private long nodes;
+    
+    public BacktrackingSolver(){
+        this(Topology.STANDARD);
+    }
+    
+    public BacktrackingSolver(Topology topology){
+        super(topology);
+        row = topology.row;
+        col = topology.col;
+        square = topology.square;
+        rowUsed = new int[topology.size];
+        colUsed = new int[topology.size];
+        squareUsed = new int[topology.size];
+        trail = new int[topology.cellCount];
+        untried = new int[topology.cellCount];
+        guessing = new boolean[topology.cellCount];
+    }
+    
+    @Override
+    public boolean solve(int[] cells){
+        stats.reset();
+        nodes = 0;
+        long start = System.nanoTime();
+        stats.solved = load(cells) && search(cells, 1) == 1;
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats.solved;
+    }
+    
+    @Override
+    public int countSolutions(int[] cells, int limit){
+        stats.reset();
+        nodes = 0;
+        long start = System.nanoTime();
+        int solutions = 0;
+        if (load(cells)){
+            solutions = search(cells, limit);
+            if (solutions >= limit){
+                // We stopped on a solution, so take it back out
+                for (int i = 0; i < numEmpty; i++){
+                    cells[trail[i]] = 0;
+                }
+            }
+        }
+        stats.solved = solutions > 0;
+        stats.elapsedNanos = System.nanoTime() - start;
+        return solutions;
+    }
+    
+    /**
+     * Set up the masks from the given values. 
+     * @param cells
+     * @return false if the given values already conflict
+     */
+    private boolean load(int[] cells){
+        Arrays.fill(rowUsed, 0);
+        Arrays.fill(colUsed, 0);
+        Arrays.fill(squareUsed, 0);
+        numEmpty = 0;
+        
+        for (int i = 0; i < trail.length; i++){
+            if (cells[i] == 0){
+                trail[numEmpty++] = i;
+                continue;
+            }
+            int bit = Candidates.bit(cells[i]);
+            if (((rowUsed[row[i]] | colUsed[col[i]] | squareUsed[square[i]]) & bit) != 0){
+                return false;
+            }
+            place(i, bit);
+        }
+        return true;
+    }
+    
+    /**
+     * Search without recursion. If we reach the limit, the cells are left 
+     * holding the last solution found; otherwise they're left as they were.
+     * If the budget runs out, we return however many we've found so far.
+     * @param cells
+     * @param limit stop once this many solutions have been found
+     * @return the number of solutions found, up to the limit
+     */
+    private int search(int[] cells, int limit){
+        int solutions = 0;
+        int depth = 0;
+        boolean forward = true;
+        while (true){
+            if (forward && depth == numEmpty){
+                if (++solutions >= limit || depth == 0){
+                    return solutions;
+                }
+                depth--;
+                forward = false;
+            }
+            
+            if (forward){
+                untried[depth] = pickCell(depth);
+                guessing[depth] = Integer.bitCount(untried[depth]) > 1;
+                stats.iterations++;
+            } else {
+                // Coming back up, so take off the value we tried here
+                stats.backtracks++;
+                int cell = trail[depth];
+                remove(cell, Candidates.bit(cells[cell]));
+                cells[cell] = 0;
+            }
+            
+            if (untried[depth] == 0){
+                if (depth == 0){
+                    return solutions;
+                }
+                depth--;
+                forward = false;
+                continue;
+            }
+            
+            if (++nodes % SolveBudget.CHECK_INTERVAL == 0 && isSpent(nodes)){
+                for (int i = 0; i < depth; i++){
+                    cells[trail[i]] = 0;
+                }
+                return solutions;
+            }
+            
+            int bit = untried[depth] & -untried[depth];
+            if (random != null){
+                bit = Candidates.bit(Candidates.nth(untried[depth], 
+                        random.nextInt(Integer.bitCount(untried[depth]))));
+            }
+            untried[depth] ^= bit;
+            int cell = trail[depth];
+            place(cell, bit);
+            cells[cell] = Candidates.lowest(bit);
+            if (guessing[depth]){
+                stats.guesses++;
+            } else {
+                stats.nakedSingles++;
+            }
+            depth++;
+            stats.reachedDepth(depth);
+            forward = true;
+        }
+    }
+    
+    /**
+     * Of the cells not yet on the trail, move the one with the fewest 
+     * candidates to the given depth.
+     * @param depth
+     * @return the candidates of the chosen cell
+     */
+    private int pickCell(int depth){
+        int bestInd = depth;
+        int bestCandidates = 0;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = depth; i < numEmpty; i++){
+            int cell = trail[i];
+            int candidates = candidatesOf(cell);
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount){
+                bestInd = i;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count <= 1){
+                    break;
+                }
+            }
+        }
+        int swap = trail[depth];
+        trail[depth] = trail[bestInd];
+        trail[bestInd] = swap;
+        return bestCandidates;
+    }
+    
+    private int candidatesOf(int cell){
+        return ~(rowUsed[row[cell]] | colUsed[col[cell]] | squareUsed[square[cell]])
+                & topology.allValues;
+    }
+    
+    private void place(int cell, int bit){
+        rowUsed[row[cell]] |= bit;
+        colUsed[col[cell]] |= bit;
+        squareUsed[square[cell]] |= bit;
+    }
+    
+    private void remove(int cell, int bit){
+        rowUsed[row[cell]] &= ~bit;
+        colUsed[col[cell]] &= ~bit;
+        squareUsed[square[cell]] &= ~bit;
+    }
+}
@@ -0,0 +1,66 @@
+package sudoku.grid;
+
+/**
+ * If a value can only go in the part of a row (or column) that crosses one
+ * square, it has to be there, so the rest of the square can't have it.
+ */
+public class BoxLineReduction implements Technique {
+    
+    // Where each value can go in the group we're looking at, by value - 1
+    private final int[] byValue = new int[Topology.MAX_SIZE];
+    
+    @Override
+    public String getName(){
+        return "box_line";
+    }
+    
+    @Override
+    public int apply(Grid grid, long since) throws Exception{
+        Topology topology = grid.topology;
+        int size = topology.size;
+        int box = topology.boxSize;
+        
+        // Positions in a line's first third (the part crossing one square), 
+        // and in a square's first row/column
+        int third = topology.boxRow;
+        int squareRow = topology.boxRow;
+        int squareCol = topology.boxCol;
+        
+        int eliminated = 0;
+        for (int line = 0; line < 2*size; line++){
+            if (!grid.hasChangedSince(line, since)){
+                continue;
+            }
+            CellGroup group = grid.getGroup(line);
+            boolean isRow = line < size;
+            int index = line%size;
+            
+            group.getPositionsOfValues(byValue);
+            for (int mask = group.getMissingValues(); mask != 0; mask &= mask - 1){
+                int value = Candidates.lowest(mask);
+                int positions = byValue[value - 1];
+                if (positions == 0){
+                    continue;
+                }
+                
+                int part = Integer.numberOfTrailingZeros(positions)/box;
+                if ((positions & ~(third << (part*box))) != 0){
+                    continue;
+                }
+                
+                // Everywhere in the square except the line itself
+                int square, keep;
+                if (isRow){
+                    square = (index/box)*box + part;
+                    keep = squareRow << ((index%box)*box);
+                } else {
+                    square = part*box + index/box;
+                    keep = squareCol << (index%box);
+                }
+                eliminated += PointingCandidates.eliminate(grid, 
+                        grid.getGroup(2*size + square), ~keep, value);
+            }
+        }
+        return eliminated;
+    }
+}
@@ -0,0 +1,58 @@
+package sudoku.grid;
+
+/**
+ * Another solver with a {@link SolutionCache} in front of it. Puzzles it's 
+ * seen before, in any equivalent form, come straight from the cache; the 
+ * rest go to the other solver and their solutions are added.
+ */
+public class CachingSolver extends ArraySolver {
+    
+    private final ArraySolver solver;
+    private final SolutionCache cache;
+    
+    // The stats of whoever did the last solve
+    private SolverStats last;
+    
+    public CachingSolver(ArraySolver solver, SolutionCache cache){
+        this.solver = solver;
+        this.cache = cache;
+        this.last = stats;
+    }
+    
+    @Override
+    public boolean solve(int[] cells){
+        long startTime = System.nanoTime();
+        Canonical canonical = Canonical.of(cells);
+        if (cache.get(canonical, cells)){
+            stats.reset();
+            stats.solved = true;
+            stats.elapsedNanos = System.nanoTime() - startTime;
+            last = stats;
+            return true;
+        }
+        
+        last = solver.getStats();
+        boolean solved = (budget == null) ? solver.solve(cells) 
+                : solver.solve(cells, budget) == SolveStatus.SOLVED;
+        if (!solved){
+            return false;
+        }
+        cache.put(canonical, cells);
+        return true;
+    }
+    
+    @Override
+    public int countSolutions(int[] cells, int limit){
+        last = solver.getStats();
+        return solver.countSolutions(cells, limit);
+    }
+    
+    @Override
+    public SolverStats getStats(){
+        return last;
+    }
+    
+    public SolutionCache getCache(){
+        return cache;
+    }
+}
@@ -0,0 +1,51 @@
+package sudoku.grid;
+
+/**
+ * Helpers for working with candidate masks. A mask stores one bit per value,
+ * so value v lives in bit (v-1); a full mask for a 9x9 grid is 0x1FF. Using a
+ * plain int keeps the solver away from boxed lists entirely.
+ */
+public final class Candidates {
+    
+    private Candidates(){
+    }
+    
+    /**
+     * The mask bit for a single value.
+     * @param value
+     * @return 
+     */
+    public static int bit(int value){
+        return 1 << (value - 1);
+    }
+    
+    public static boolean contains(int mask, int value){
+        return (mask & bit(value)) != 0;
+    }
+    
+    public static int count(int mask){
+        return Integer.bitCount(mask);
+    }
+    
+    /**
+     * The smallest value in the mask; only meaningful if the mask isn't empty.
+     * @param mask
+     * @return 
+     */
+    public static int lowest(int mask){
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+    
+    /**
+     * The n-th smallest value in the mask, counting from 0.
+     * @param mask
+     * @param n
+     * @return 
+     */
+    public static int nth(int mask, int n){
+        for (int i = 0; i < n; i++){
+            mask &= mask - 1;
+        }
+        return lowest(mask);
+    }
+}
@@ -0,0 +1,265 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+
+/**
+ * A puzzle brought into a standard form, so that puzzles which only differ by
+ * relabelling digits, reordering bands and stacks, reordering rows within a 
+ * band or columns within a stack, or transposing, tend to end up the same.
+ * 
+ * Bands, rows, stacks and columns are ordered by weights built from their
+ * clues (how often each clue's digit is used, then a few rounds of mixing in
+ * the weights of the lines crossing them), none of which change under any of
+ * those moves. Ties keep their original order, so very symmetric puzzles can
+ * still get different keys. Digits are then relabelled in the order they 
+ * first appear, and whichever orientation comes out smaller wins. Equal keys
+ * always mean equivalent puzzles, so this is safe for caching, just not 
+ * perfect.
+ * 
+ * The transform is kept so values can be moved between the original and
+ * the canonical form, e.g. to map a cached solution back.
+ */
+public final class Canonical {
+    
+    // How many times lines take in the weights of the lines crossing them
+    private static final int ROUNDS = 3;
+    
+    // Canonical cell i takes its value from original cell cellMap[i]
+    private final int[] cellMap = new int[81];
+    
+    // Original digit to canonical digit and back, 0 stays 0
+    private final int[] toCanonical = new int[10];
+    private final int[] fromCanonical = new int[10];
+    
+    private final Key key;
+    
+    private Canonical(int[] puzzle){
+        int[] best = null;
+        int[] candidate = new int[81];
+        int[] map = new int[81];
+        int[] digits = new int[10];
+        
+        for (int orientation = 0; orientation < 2; orientation++){
+            boolean transposed = orientation == 1;
+            order(puzzle, transposed, map);
+            relabel(puzzle, map, candidate, digits);
+            if (best == null || compare(candidate, best) < 0){
+                best = candidate.clone();
+                System.arraycopy(map, 0, cellMap, 0, 81);
+                System.arraycopy(digits, 0, toCanonical, 0, 10);
+            }
+        }
+        
+        for (int digit = 0; digit < 10; digit++){
+            fromCanonical[toCanonical[digit]] = digit;
+        }
+        key = new Key(pack(best));
+    }
+    
+    /**
+     * @param puzzle 81 values in row-major order, 0 for empty
+     * @return 
+     */
+    public static Canonical of(int[] puzzle){
+        return new Canonical(puzzle);
+    }
+    
+    public Key getKey(){
+        return key;
+    }
+    
+    /**
+     * @param values 81 values laid out like the original puzzle, e.g. its 
+     * solution
+     * @param out filled with the same values in canonical form
+     */
+    public void toCanonical(int[] values, int[] out){
+        for (int i = 0; i < 81; i++){
+            out[i] = toCanonical[values[cellMap[i]]];
+        }
+    }
+    
+    /**
+     * @param values 81 values in canonical form
+     * @param out filled with the same values laid out like the original
+     */
+    public void fromCanonical(int[] values, int[] out){
+        for (int i = 0; i < 81; i++){
+            out[cellMap[i]] = fromCanonical[values[i]];
+        }
+    }
+    
+    /**
+     * Work out the order of rows and columns for one orientation.
+     * @param map filled with the original cell for each canonical cell
+     */
+    private static void order(int[] puzzle, boolean transposed, int[] map){
+        // How often each digit is used, which relabelling doesn't change
+        int[] uses = new int[10];
+        for (int value : puzzle){
+            uses[value]++;
+        }
+        
+        // Start each line off with what its clues are like, then mix in the 
+        // weights of the lines crossing it at its clues a few times over
+        long[] rowWeight = new long[9];
+        long[] colWeight = new long[9];
+        for (int i = 0; i < 81; i++){
+            if (puzzle[i] != 0){
+                int row = transposed ? i%9 : i/9;
+                int col = transposed ? i/9 : i%9;
+                rowWeight[row] += mix(uses[puzzle[i]]);
+                colWeight[col] += mix(uses[puzzle[i]]);
+            }
+        }
+        long[] rowNext = new long[9];
+        long[] colNext = new long[9];
+        for (int round = 0; round < ROUNDS; round++){
+            for (int line = 0; line < 9; line++){
+                rowNext[line] = rowWeight[line]*31;
+                colNext[line] = colWeight[line]*31;
+            }
+            for (int i = 0; i < 81; i++){
+                if (puzzle[i] != 0){
+                    int row = transposed ? i%9 : i/9;
+                    int col = transposed ? i/9 : i%9;
+                    rowNext[row] += mix(colWeight[col] + uses[puzzle[i]]);
+                    colNext[col] += mix(rowWeight[row] + uses[puzzle[i]]);
+                }
+            }
+            System.arraycopy(rowNext, 0, rowWeight, 0, 9);
+            System.arraycopy(colNext, 0, colWeight, 0, 9);
+        }
+        
+        int[] rows = lineOrder(rowWeight);
+        int[] cols = lineOrder(colWeight);
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                map[row*9 + col] = transposed ? cols[col]*9 + rows[row] 
+                                              : rows[row]*9 + cols[col];
+            }
+        }
+    }
+    
+    /**
+     * Scramble a weight so that sums of them don't collide easily.
+     */
+    private static long mix(long weight){
+        weight *= 0x9E3779B97F4A7C15L;
+        return weight ^ (weight >>> 31);
+    }
+    
+    /**
+     * Heaviest third first, then heaviest line first within each third, 
+     * keeping the original order for ties.
+     * @param weights by line
+     * @return the original line for each position
+     */
+    private static int[] lineOrder(long[] weights){
+        int[] thirds = sortedByWeight(new long[]{
+            weights[0] + weights[1] + weights[2],
+            weights[3] + weights[4] + weights[5],
+            weights[6] + weights[7] + weights[8]});
+        
+        int[] lines = new int[9];
+        long[] within = new long[3];
+        for (int t = 0; t < 3; t++){
+            int first = thirds[t]*3;
+            within[0] = weights[first];
+            within[1] = weights[first + 1];
+            within[2] = weights[first + 2];
+            int[] order = sortedByWeight(within);
+            for (int i = 0; i < 3; i++){
+                lines[t*3 + i] = first + order[i];
+            }
+        }
+        return lines;
+    }
+    
+    /**
+     * @return the indices of three weights, heaviest first, stable
+     */
+    private static int[] sortedByWeight(long[] weights){
+        int[] order = {0, 1, 2};
+        for (int i = 1; i < 3; i++){
+            for (int j = i; j > 0 && weights[order[j]] > weights[order[j - 1]]; j--){
+                int swap = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = swap;
+            }
+        }
+        return order;
+    }
+    
+    /**
+     * Move the puzzle's values into place and number the digits in the order
+     * they first show up; digits the puzzle doesn't have take what's left.
+     */
+    private static void relabel(int[] puzzle, int[] map, int[] out, int[] digits){
+        Arrays.fill(digits, 0);
+        int next = 1;
+        for (int i = 0; i < 81; i++){
+            int value = puzzle[map[i]];
+            if (value != 0 && digits[value] == 0){
+                digits[value] = next++;
+            }
+            out[i] = digits[value];
+        }
+        for (int digit = 1; digit <= 9; digit++){
+            if (digits[digit] == 0){
+                digits[digit] = next++;
+            }
+        }
+    }
+    
+    private static int compare(int[] a, int[] b){
+        for (int i = 0; i < 81; i++){
+            if (a[i] != b[i]){
+                return a[i] < b[i] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * 81 values of 4 bits each, 16 to a long.
+     * @param values
+     * @return 
+     */
+    static long[] pack(int[] values){
+        long[] words = new long[6];
+        for (int i = 0; i < 81; i++){
+            words[i >> 4] |= (long) values[i] << ((i & 15)*4);
+        }
+        return words;
+    }
+    
+    static void unpack(long[] words, int[] values){
+        for (int i = 0; i < 81; i++){
+            values[i] = (int) (words[i >> 4] >>> ((i & 15)*4)) & 0xF;
+        }
+    }
+    
+    /**
+     * The canonical form packed into 324 bits, for use as a map key.
+     */
+    public static final class Key {
+        private final long[] words;
+        private final int hash;
+        
+        Key(long[] words){
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+        
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object other){
+            return other instanceof Key && Arrays.equals(words, ((Key) other).words);
+        }
+    }
+}
@@ -1,21 +1,32 @@
 package sudoku.grid;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import static sudoku.grid.Grid.getSquare;
 
 /**
  * The class of a specific cell at a row/col location, which can contain an
- * integer value from 1-9.
+ * integer value from 1-9 (or up to the size of the grid, for bigger ones).
  */
 public class Cell {
+    // For the usual 9x9; other sizes go by their Topology
     public static final List<Integer> VALID_VALUES = Arrays.asList(new Integer[]{1,2,3,4,5,6,7,8,9});
-    private Integer value = null;
+    public static final int ALL_CANDIDATES = 0x1FF;
+    private int value = 0; // 0 while empty
     public int row;
     public int col;
     public int square; // 3x3 squares
-    public List<Integer> potentialValues;
+    
+    // Bit (v-1) is set while v is still possible for this cell
+    int candidates;
+    private final int size;
+    
+    // Read-only view of the candidates, for anything that still wants a list
+    public final List<Integer> potentialValues = new MaskList(1){
+        @Override
+        int mask() {
+            return candidates;
+        }
+    };
     boolean isSetByGame = false; // Whether the cell was set by the app or by the user/solver
     
     /**
@@ -28,12 +39,23 @@ public class Cell {
      * @param col 
      */
     public Cell(int row, int col){
-        assert(0 <= row && row < 9);
-        assert(0 <= col && col < 9);
+        this(Topology.STANDARD, row, col);
+    }
+    
+    /**
+     * A cell of a grid of any size.
+     * @param topology
+     * @param row
+     * @param col 
+     */
+    public Cell(Topology topology, int row, int col){
+        assert(0 <= row && row < topology.size);
+        assert(0 <= col && col < topology.size);
         this.row = row;
         this.col = col;
-        this.square = getSquare(row, col);
-        potentialValues = new ArrayList<>(VALID_VALUES);
+        this.square = topology.getSquare(row, col);
+        this.size = topology.size;
+        this.candidates = topology.allValues;
     }
     
     /**
@@ -41,16 +63,45 @@ public class Cell {
      * @param value 
      */
     public void setValue(Integer value){
-        assert(VALID_VALUES.contains(value) || value == null);
-        this.value = value;
+        setDigit((value == null) ? 0 : value);
     }
     
+    /**
+     * @return the value, or null if the cell is empty
+     */
     public Integer getValue(){
+        return (this.value == 0) ? null : Integer.valueOf(this.value);
+    }
+    
+    /**
+     * Same as {@link #setValue(Integer)} without the boxing.
+     * @param value 1-9 (or up to the grid's size), or 0 to empty the cell
+     */
+    public void setDigit(int value){
+        assert(0 <= value && value <= size);
+        this.value = value;
+    }
+    
+    /**
+     * @return the value, or 0 if the cell is empty
+     */
+    public int getDigit(){
         return this.value;
     }
     
+    /**
+     * @return the candidate mask, where bit (v-1) means v is still possible
+     */
+    public int getCandidates(){
+        return this.candidates;
+    }
+    
+    public int getCandidateCount(){
+        return Integer.bitCount(this.candidates);
+    }
+    
     public boolean isEmpty(){
-        return (this.value == null);
+        return (this.value == 0);
     }
     
     @Override
@@ -1,13 +1,12 @@
 package sudoku.grid;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.List;
 
 /**
  * A group of 9 cells - either a row group, column group, or square group.
+ * Bigger grids have as many cells in a group as they have values.
  */
 public class CellGroup {
     public enum GroupType {ROW, COL, SQUARE};
@@ -16,15 +15,32 @@ public class CellGroup {
     private final GroupType groupType;
     private final int groupNumber;
     
-    private final Cell[] cells = new Cell[9];
-    private final ArrayList<Integer> missingValues = new ArrayList<>(Cell.VALID_VALUES);
-    public final ArrayList<Integer> emptyCellInds = 
-            new ArrayList<>(IntStream.range(0, 9).
-                    mapToObj(Integer::new).collect(Collectors.toList()));
+    private final Cell[] cells;
+    
+    // Bit (v-1) is set once value v has been placed in the group, and bit i
+    // of emptyPositions is set while the cell at position i is still empty
+    private final int allValues;
+    private int placedValues = 0;
+    private int emptyPositions;
+    
+    // Read-only view of the empty positions
+    public final List<Integer> emptyCellInds = new MaskList(0){
+        @Override
+        int mask() {
+            return emptyPositions;
+        }
+    };
         
     public CellGroup(GroupType groupType, int groupNumber){
+        this(Topology.STANDARD, groupType, groupNumber);
+    }
+    
+    public CellGroup(Topology topology, GroupType groupType, int groupNumber){
         this.groupType = groupType;
         this.groupNumber = groupNumber;
+        this.cells = new Cell[topology.size];
+        this.allValues = topology.allValues;
+        this.emptyPositions = topology.allValues;
     }
     
     /**
@@ -43,23 +59,20 @@ public class CellGroup {
     public void addCell(int position, Cell cell) throws Exception{
         // Make sure we haven't put anything here yet
         if (cells[position] != null){
-            System.out.println("Cell is being overwritten in " + groupId());
-            throw new Exception();
+            throw new Exception("Cell is being overwritten in " + groupId());
         }
         
         // Make sure we don't have the cell's value yet
         if (!cell.isEmpty()){
             if (this.containsValue(cell.getValue())){
-                System.out.println(groupId() + " already has value " + cell.getValue());
-                throw new Exception();
+                throw new Exception(groupId() + " already has value " + cell.getValue());
             }
         }
 
         // TODO: maybe allow this later, it requires us to update not only group
         // propertie slike missingValues, but also the other cells' properties
         if (!cell.isEmpty()){
-            System.out.println("CellGroups do not allow adding new cells with values");
-            throw new Exception();
+            throw new Exception("CellGroups do not allow adding new cells with values");
         }
         
         cells[position] = cell;
@@ -74,14 +87,12 @@ public class CellGroup {
      */
     public void addFoundValue(int position, int value) throws Exception{
         if (cells[position] == null){
-            System.out.println("We don't seem to have a cell at position " + 
-                    position + " in this group.");
-            throw new Exception();
+            throw new Exception("We don't seem to have a cell at position " + 
+                    position + " in " + groupId());
         }
         
-        // Remove the actual values, not the indices
-        missingValues.remove((Object) value);
-        emptyCellInds.remove((Object) position);
+        placedValues |= Candidates.bit(value);
+        emptyPositions &= ~(1 << position);
     }
     
     /**
@@ -89,12 +100,21 @@ public class CellGroup {
      * possible for other cells in this group.
      * @param position
      * @param value 
+     * @return a mask of the positions whose cells lost the value as a 
+     * candidate
      */
-    public void clearValueFromCells(int position, int value) throws Exception{
+    public int clearValueFromCells(int position, int value) throws Exception{
         addFoundValue(position, value);
-        for (Integer ind : emptyCellInds){
-            cells[ind].potentialValues.remove((Object) value);
+        int bit = Candidates.bit(value);
+        int changed = 0;
+        for (int mask = emptyPositions; mask != 0; mask &= mask - 1){
+            int ind = Integer.numberOfTrailingZeros(mask);
+            if ((cells[ind].candidates & bit) != 0){
+                cells[ind].candidates &= ~bit;
+                changed |= 1 << ind;
+            }
         }
+        return changed;
     }
     
     public Cell getCell(int position){
@@ -102,7 +122,36 @@ public class CellGroup {
     }
     
     public boolean containsValue(int value){
-        return !missingValues.contains(value);
+        return (placedValues & Candidates.bit(value)) != 0;
+    }
+    
+    /**
+     * @return a mask of the values not yet placed in the group
+     */
+    public int getMissingValues(){
+        return ~placedValues & allValues;
+    }
+    
+    /**
+     * @return a mask of the positions whose cells are still empty
+     */
+    public int getEmptyPositions(){
+        return emptyPositions;
+    }
+    
+    /**
+     * Work out where every value could go in one pass.
+     * @param positions filled with the mask of empty positions that could 
+     * hold value v at index v-1; placed values get 0
+     */
+    public void getPositionsOfValues(int[] positions){
+        Arrays.fill(positions, 0, cells.length, 0);
+        for (int mask = emptyPositions; mask != 0; mask &= mask - 1){
+            int ind = Integer.numberOfTrailingZeros(mask);
+            for (int values = cells[ind].candidates; values != 0; values &= values - 1){
+                positions[Integer.numberOfTrailingZeros(values)] |= 1 << ind;
+            }
+        }
     }
     
     /**
@@ -112,21 +161,26 @@ public class CellGroup {
      */ 
     public HashMap<Cell, Integer> lookForMissingValues(){
         HashMap<Cell, Integer> cellsToRemove = new HashMap<>();
-        for (Iterator it = missingValues.iterator(); it.hasNext();){
-            int value = (Integer) it.next();
-            int numValidCells = 0;
-            Integer lastValidCell = null;
-            for (Integer ind : emptyCellInds){
-                if (getCell(ind).potentialValues.contains(value)){
-                    numValidCells++;
-                    lastValidCell = ind;
+        
+        // Values seen in at least one empty cell, and in at least two
+        int seenOnce = 0;
+        int seenTwice = 0;
+        for (int mask = emptyPositions; mask != 0; mask &= mask - 1){
+            int candidates = cells[Integer.numberOfTrailingZeros(mask)].candidates;
+            seenTwice |= seenOnce & candidates;
+            seenOnce |= candidates;
+        }
+        
+        for (int singles = seenOnce & ~seenTwice & getMissingValues(); 
+                singles != 0; singles &= singles - 1){
+            int bit = singles & -singles;
+            for (int mask = emptyPositions; mask != 0; mask &= mask - 1){
+                Cell cell = cells[Integer.numberOfTrailingZeros(mask)];
+                if ((cell.candidates & bit) != 0){
+                    cellsToRemove.put(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                    break;
                 }
             }
-            
-            if (numValidCells == 1){
-                Cell cell = getCell(lastValidCell);
-                cellsToRemove.put(cell, value);
-            }
         }
         return cellsToRemove;
     }
@@ -0,0 +1,119 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+
+/**
+ * A set of cell indices (row*size + col) held in a few longs: two for a 9x9
+ * grid. Go through it with bit scanning:
+ *
+ *     for (int i = set.first(); i >= 0; i = set.next(i + 1))
+ *
+ * Removing the current index along the way is fine.
+ */
+public final class CellSet {
+
+    // Bit (i % 64) of word (i / 64) is set while i is in the set
+    private final long[] words;
+    private final int capacity;
+
+    /**
+     * @return an empty set for the cells of a 9x9 grid
+     */
+    public CellSet(){
+        this(81);
+    }
+
+    /**
+     * @param capacity one more than the biggest index that can go in
+     */
+    public CellSet(int capacity){
+        this.capacity = capacity;
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    public void add(int index){
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void remove(int index){
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public boolean contains(int index){
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int size(){
+        int size = 0;
+        for (long word : words){
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    public boolean isEmpty(){
+        for (long word : words){
+            if (word != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear(){
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Add every index below the capacity.
+     */
+    public void fill(){
+        Arrays.fill(words, -1L);
+        if ((capacity & 63) != 0){
+            words[words.length - 1] = (1L << capacity) - 1;
+        }
+    }
+
+    /**
+     * @param other a set with the same capacity
+     */
+    public void copyFrom(CellSet other){
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * Add everything in another set.
+     * @param other a set no bigger than this one
+     */
+    public void addAll(CellSet other){
+        for (int i = 0; i < other.words.length; i++){
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * @return the smallest index in the set, or -1 if it's empty
+     */
+    public int first(){
+        return next(0);
+    }
+
+    /**
+     * @param from
+     * @return the smallest index in the set that's at least from, or -1
+     */
+    public int next(int from){
+        int word = from >>> 6;
+        if (word >= words.length){
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (bits == 0){
+            if (++word == words.length){
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,335 @@
+package sudoku.grid;
+
+/**
+ * Knuth's Algorithm X with dancing links, treating sudoku as an exact cover
+ * problem. There are 324 constraints (every cell has a value, and every
+ * row/col/square has each value) and 729 choices (value v in cell i), each
+ * choice covering exactly 4 constraints.
+ * 
+ * The links are stored in int arrays that are built once in the constructor;
+ * givens are covered before searching and everything is uncovered again 
+ * afterwards, so the same instance can solve puzzle after puzzle without
+ * allocating. Bigger grids work the same way, with 4*size*size constraints
+ * and size*size*size choices.
+ */
+public class DancingLinksSolver extends ArraySolver {
+    
+    private static final int ROOT = 0;
+    
+    // Values per cell, and the number of constraint columns
+    private final int values;
+    private final int columns;
+    
+    // Links for every node; nodes 1 to columns are the column headers
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] choice;
+    
+    // Number of nodes left in each column, and whether it's been covered
+    private final int[] size;
+    private final boolean[] covered;
+    
+    // First node of each choice (cell*size + value-1)
+    private final int[] choiceNode;
+    
+    // Search state per level: the column being covered, and the node tried
+    private final int[] levelColumn;
+    private final int[] levelNode;
+    
+    // Nodes of the givens, so we can uncover them in reverse order
+    private final int[] givenNodes;
+    
+    // Search nodes visited, for the budget
+    private long nodes;
+    
+    public DancingLinksSolver(){
+        this(Topology.STANDARD);
+    }
+    
+    public DancingLinksSolver(Topology topology){
+        super(topology);
+        int cells = topology.cellCount;
+        values = topology.size;
+        columns = 4*cells;
+        int choices = cells*values;
+        int numNodes = 1 + columns + choices*4;
+        left = new int[numNodes];
+        right = new int[numNodes];
+        up = new int[numNodes];
+        down = new int[numNodes];
+        column = new int[numNodes];
+        choice = new int[numNodes];
+        size = new int[columns + 1];
+        covered = new boolean[columns + 1];
+        choiceNode = new int[choices];
+        levelColumn = new int[cells];
+        levelNode = new int[cells];
+        givenNodes = new int[cells];
+        
+        for (int col = 0; col <= columns; col++){
+            left[col] = (col == 0) ? columns : col - 1;
+            right[col] = (col == columns) ? ROOT : col + 1;
+            up[col] = col;
+            down[col] = col;
+        }
+        
+        int node = columns + 1;
+        for (int cell = 0; cell < cells; cell++){
+            for (int value = 0; value < values; value++){
+                int id = cell*values + value;
+                choiceNode[id] = node;
+                int[] constraints = {
+                    1 + cell,
+                    1 + cells + topology.row[cell]*values + value,
+                    1 + 2*cells + topology.col[cell]*values + value,
+                    1 + 3*cells + topology.square[cell]*values + value
+                };
+                for (int k = 0; k < 4; k++){
+                    int n = node + k;
+                    int col = constraints[k];
+                    column[n] = col;
+                    choice[n] = id;
+                    
+                    // Add to the bottom of the column
+                    up[n] = up[col];
+                    down[n] = col;
+                    down[up[col]] = n;
+                    up[col] = n;
+                    size[col]++;
+                    
+                    // And link up the choice's 4 nodes in a ring
+                    left[n] = node + (k + 3)%4;
+                    right[n] = node + (k + 1)%4;
+                }
+                node += 4;
+            }
+        }
+    }
+    
+    @Override
+    public boolean solve(int[] cells){
+        return count(cells, cells, 1) > 0;
+    }
+    
+    @Override
+    public int countSolutions(int[] cells, int limit){
+        return count(cells, null, limit);
+    }
+    
+    /**
+     * @param cells the puzzle
+     * @param solution where to put the first solution, or null
+     * @param limit
+     * @return the number of solutions, at most limit
+     */
+    private int count(int[] cells, int[] solution, int limit){
+        stats.reset();
+        nodes = 0;
+        long start = System.nanoTime();
+        int solutions = 0;
+        int numGivens = coverGivens(cells);
+        if (numGivens >= 0){
+            solutions = search(solution, limit);
+            uncoverGivens(numGivens);
+        }
+        stats.solved = solutions > 0;
+        stats.elapsedNanos = System.nanoTime() - start;
+        return solutions;
+    }
+    
+    /**
+     * Choose the rows for each given value.
+     * @param cells
+     * @return the number of givens covered, or -1 if they conflict (in which
+     * case nothing is left covered)
+     */
+    private int coverGivens(int[] cells){
+        int numGivens = 0;
+        for (int cell = 0; cell < givenNodes.length; cell++){
+            if (cells[cell] == 0){
+                continue;
+            }
+            int node = choiceNode[cell*values + cells[cell] - 1];
+            
+            // Each of its constraints must still be open
+            int n = node;
+            do {
+                if (covered[column[n]]){
+                    uncoverGivens(numGivens);
+                    return -1;
+                }
+                n = right[n];
+            } while (n != node);
+            
+            coverChoice(node);
+            givenNodes[numGivens++] = node;
+        }
+        return numGivens;
+    }
+    
+    private void uncoverGivens(int numGivens){
+        for (int i = numGivens - 1; i >= 0; i--){
+            uncoverChoice(givenNodes[i]);
+        }
+    }
+    
+    /**
+     * Algorithm X, without recursion. The first solution found is written 
+     * into cells (unless it's null), and the links are always fully restored 
+     * before returning. If the budget runs out, we return however many 
+     * we've found so far.
+     * @param cells
+     * @param limit stop once this many solutions have been found
+     * @return the number of solutions found, up to the limit
+     */
+    private int search(int[] cells, int limit){
+        int solutions = 0;
+        int level = 0;
+        boolean forward = true;
+        while (true){
+            if (forward){
+                if (right[ROOT] == ROOT){
+                    // Everything is covered, so this is a solution
+                    if (++solutions == 1 && cells != null){
+                        record(cells, level);
+                    }
+                    if (solutions >= limit){
+                        unwind(level);
+                        return solutions;
+                    }
+                    if (--level < 0){
+                        return solutions;
+                    }
+                    forward = false;
+                    continue;
+                }
+                
+                if (++nodes % SolveBudget.CHECK_INTERVAL == 0 && isSpent(nodes)){
+                    unwind(level);
+                    return solutions;
+                }
+                
+                int col = smallestColumn();
+                if (size[col] == 0){
+                    if (--level < 0){
+                        return solutions;
+                    }
+                    forward = false;
+                    continue;
+                }
+                cover(col);
+                levelColumn[level] = col;
+                levelNode[level] = col;
+                stats.iterations++;
+            } else {
+                // Back at this level, so undo the choice we tried
+                uncoverRest(levelNode[level]);
+                stats.backtracks++;
+            }
+            
+            int node = down[levelNode[level]];
+            if (node == levelColumn[level]){
+                // Tried every choice for this column
+                uncover(levelColumn[level]);
+                if (--level < 0){
+                    return solutions;
+                }
+                forward = false;
+                continue;
+            }
+            levelNode[level] = node;
+            coverRest(node);
+            if (size[levelColumn[level]] > 1){
+                stats.guesses++;
+            } else {
+                stats.nakedSingles++;
+            }
+            level++;
+            stats.reachedDepth(level);
+            forward = true;
+        }
+    }
+    
+    private void record(int[] cells, int levels){
+        for (int i = 0; i < levels; i++){
+            int id = choice[levelNode[i]];
+            cells[id/values] = id%values + 1;
+        }
+    }
+    
+    /**
+     * Undo every level of the search, deepest first.
+     * @param levels 
+     */
+    private void unwind(int levels){
+        for (int i = levels - 1; i >= 0; i--){
+            uncoverRest(levelNode[i]);
+            uncover(levelColumn[i]);
+        }
+    }
+    
+    private int smallestColumn(){
+        int best = right[ROOT];
+        for (int col = right[ROOT]; col != ROOT; col = right[col]){
+            if (size[col] < size[best]){
+                best = col;
+                if (size[col] <= 1){
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+    
+    private void coverChoice(int node){
+        cover(column[node]);
+        coverRest(node);
+    }
+    
+    private void uncoverChoice(int node){
+        uncoverRest(node);
+        uncover(column[node]);
+    }
+    
+    // Cover the columns of the other nodes in a choice
+    private void coverRest(int node){
+        for (int n = right[node]; n != node; n = right[n]){
+            cover(column[n]);
+        }
+    }
+    
+    private void uncoverRest(int node){
+        for (int n = left[node]; n != node; n = left[n]){
+            uncover(column[n]);
+        }
+    }
+    
+    private void cover(int col){
+        covered[col] = true;
+        right[left[col]] = right[col];
+        left[right[col]] = left[col];
+        for (int i = down[col]; i != col; i = down[i]){
+            for (int j = right[i]; j != i; j = right[j]){
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+    
+    private void uncover(int col){
+        for (int i = up[col]; i != col; i = up[i]){
+            for (int j = left[i]; j != i; j = left[j]){
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[col]] = col;
+        left[right[col]] = col;
+        covered[col] = false;
+    }
+}
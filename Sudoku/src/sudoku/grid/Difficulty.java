@@ -0,0 +1,44 @@
+package sudoku.grid;
+
+/**
+ * How hard a new game should be: how many clues the puzzle starts with, and
+ * the highest {@link DifficultyRater} score it can have.
+ */
+public enum Difficulty {
+    // Singles are all you need
+    EASY(36, DifficultyRater.SINGLE),
+    // Up to hidden pairs: pointing candidates, box/line reduction, naked
+    // pairs, X-Wing and hidden pairs, but no triples or guessing
+    MEDIUM(30, 3.4),
+    // Anything else, guessing included
+    HARD(25, Double.POSITIVE_INFINITY);
+    
+    private final int clues;
+    private final double maxScore;
+    
+    Difficulty(int clues, double maxScore){
+        this.clues = clues;
+        this.maxScore = maxScore;
+    }
+    
+    public int getClues(){
+        return clues;
+    }
+    
+    public double getMaxScore(){
+        return maxScore;
+    }
+    
+    /**
+     * @param score a {@link DifficultyRater} score
+     * @return the easiest difficulty the score fits in
+     */
+    public static Difficulty forScore(double score){
+        for (Difficulty difficulty : values()){
+            if (score <= difficulty.maxScore){
+                return difficulty;
+            }
+        }
+        return HARD;
+    }
+}
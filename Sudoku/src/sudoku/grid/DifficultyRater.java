@@ -0,0 +1,92 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate a puzzle by solving it the way a person would: singles whenever 
+ * possible, and otherwise the weakest technique that gets anywhere. The 
+ * score is the weight of the hardest technique needed, so a long puzzle 
+ * full of singles is still easy.
+ * 
+ * A rater is not thread-safe, but can be reused for any number of puzzles.
+ */
+public class DifficultyRater {
+    
+    public static final double SINGLE = 1.0;
+    public static final double GUESS = 10.0;
+    
+    // Weakest first
+    private static final double[] WEIGHTS = 
+            {2.6, 2.8, 3.0, 3.2, 3.4, 3.6, 3.8, 4.0, 5.0, 5.4};
+    
+    private final MySolver solver = new MySolver(Arrays.asList(
+            new PointingCandidates(),
+            new BoxLineReduction(),
+            new NakedSubset(2),
+            new Fish(2),
+            new HiddenSubset(2),
+            new NakedSubset(3),
+            new Fish(3),
+            new HiddenSubset(3),
+            new NakedSubset(4),
+            new HiddenSubset(4)));
+    
+    /**
+     * @param puzzle 81 values in row-major order, 0 for empty
+     * @return
+     * @throws Exception 
+     */
+    public Rating rate(int[] puzzle) throws Exception{
+        return rate(puzzle, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Rate a puzzle, giving up once it's clearly harder than we care about.
+     * Puzzles without exactly one solution come out as needing a guess.
+     * @param puzzle 81 values in row-major order, 0 for empty
+     * @param limit stop once the score is past this
+     * @return
+     * @throws Exception 
+     */
+    public Rating rate(int[] puzzle, double limit) throws Exception{
+        Grid grid = new Grid(puzzle);
+        solver.start(grid);
+        
+        double score = SINGLE;
+        String hardest = "single";
+        boolean complete = true;
+        while (true){
+            if (!solver.propagate()){
+                score = GUESS;
+                hardest = "guess";
+                break;
+            }
+            if (grid.emptyCells.isEmpty()){
+                break;
+            }
+            if (score > limit){
+                complete = false;
+                break;
+            }
+            
+            int technique = solver.applyTechniques();
+            if (technique < 0){
+                score = GUESS;
+                hardest = "guess";
+                break;
+            }
+            if (WEIGHTS[technique] > score){
+                score = WEIGHTS[technique];
+                hardest = solver.getTechniques().get(technique).getName();
+            }
+        }
+        
+        SolverStats stats = solver.getStats();
+        Map<String, Long> uses = new LinkedHashMap<>();
+        uses.put("single", stats.getNakedSingles() + stats.getHiddenSingles());
+        uses.putAll(stats.getTechniqueHits());
+        return new Rating(score, hardest, uses, complete);
+    }
+}
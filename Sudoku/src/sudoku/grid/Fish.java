@@ -0,0 +1,99 @@
+package sudoku.grid;
+
+/**
+ * If a value can only go in the same n columns across n rows, those rows 
+ * take up the value in each of the columns, so no other row can have it 
+ * there (and the same with rows and columns swapped). X-Wing for 2, 
+ * Swordfish for 3.
+ */
+public class Fish implements Technique {
+    
+    private static final String[] NAMES = {"x_wing", "swordfish"};
+    
+    private final int size;
+    
+    // Where each value can go in each line we're looking at, by line and
+    // value - 1, and the same for just the value we're looking at
+    private final int[][] table = new int[Topology.MAX_SIZE][Topology.MAX_SIZE];
+    private final int[] positions = new int[Topology.MAX_SIZE];
+    
+    /**
+     * @param size 2 for X-Wing, 3 for Swordfish
+     */
+    public Fish(int size){
+        assert(size == 2 || size == 3);
+        this.size = size;
+    }
+    
+    @Override
+    public String getName(){
+        return NAMES[size - 2];
+    }
+    
+    @Override
+    public int apply(Grid grid, long since) throws Exception{
+        int gridSize = grid.topology.size;
+        int eliminated = 0;
+        // Rows first, then columns; nothing new unless one of them changed
+        for (int base = 0; base <= gridSize; base += gridSize){
+            boolean changed = false;
+            for (int line = 0; line < gridSize && !changed; line++){
+                changed = grid.hasChangedSince(base + line, since);
+            }
+            if (!changed){
+                continue;
+            }
+            
+            for (int line = 0; line < gridSize; line++){
+                grid.getGroup(base + line).getPositionsOfValues(table[line]);
+            }
+            
+            for (int value = 1; value <= gridSize; value++){
+                int eligible = 0;
+                for (int line = 0; line < gridSize; line++){
+                    positions[line] = table[line][value - 1];
+                    int count = Integer.bitCount(positions[line]);
+                    if (2 <= count && count <= size){
+                        eligible |= 1 << line;
+                    }
+                }
+                if (Integer.bitCount(eligible) >= size){
+                    eliminated += search(grid, gridSize - base, value, eligible, 0, 0, 0);
+                }
+            }
+        }
+        return eliminated;
+    }
+    
+    /**
+     * Try each combination of eligible lines, dropping any that already 
+     * cover too many crossing lines.
+     * @param cross the grid's size if the lines are rows (so they cross 
+     * columns), 0 if not
+     */
+    private int search(Grid grid, int cross, int value, int remaining, 
+            int lines, int crossing, int depth){
+        if (depth == size){
+            if (Integer.bitCount(crossing) != size){
+                return 0;
+            }
+            int eliminated = 0;
+            for (int mask = crossing; mask != 0; mask &= mask - 1){
+                CellGroup group = grid.getGroup(cross + Integer.numberOfTrailingZeros(mask));
+                eliminated += PointingCandidates.eliminate(grid, group, ~lines, value);
+            }
+            return eliminated;
+        }
+        
+        int eliminated = 0;
+        for (int rest = remaining; rest != 0; rest &= rest - 1){
+            int line = Integer.numberOfTrailingZeros(rest);
+            int union = crossing | positions[line];
+            if (Integer.bitCount(union) <= size){
+                eliminated += search(grid, cross, value, rest & (rest - 1), 
+                        lines | (1 << line), union, depth + 1);
+            }
+        }
+        return eliminated;
+    }
+}
@@ -1,39 +1,87 @@
 package sudoku.grid;
 
-import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.IntStream;
 import sudoku.grid.CellGroup.GroupType;
 
 /**
  * This class is used to store the sudoku grid. The values are of class {@Cell} 
  * since that helps with some in-cell operations. The grid is stored in 
- * different arrangements to help with solving.
+ * different arrangements to help with solving. Grids are 9x9 unless they're
+ * made with a bigger {@link Topology}.
  * @author xoab
  */
-public final class Grid implements PropertyChangeListener {
+public final class Grid {
+    private static final Logger LOG = Logger.getLogger(Grid.class.getName());
+    
+    // Where everything is, and how big it is
+    final Topology topology;
+    private final int size;
+    
     // 3 arrangements of the sudoku grid: by rows, by cols, and by 3x3 squares
-    CellGroup[] gridRows = new CellGroup[9];
-    CellGroup[] gridCols = new CellGroup[9];
-    CellGroup[] gridSquares = new CellGroup[9];
+    CellGroup[] gridRows;
+    CellGroup[] gridCols;
+    CellGroup[] gridSquares;
+    
+    // Every cell by index (row*size + col)
+    private final Cell[] cells;
+    
+    // Keep track of how complete we are and what cells need solving; any 
+    // cell not set by the game is empty
+    final CellSet emptyCells;
+    private final Set<Pair> emptyView = new EmptyCells();
+    private final Map<Pair, Integer> filledView = new FilledCells();
+    
+    // What the solver should look at because of values we've placed
+    final PropagationQueue queue;
     
-    // Keep track of how complete we are and what cells need solving
-    HashSet<Pair> emptyCells = new HashSet<>();
-    HashMap<Pair, Integer> filledCells = new HashMap<>();
+    // Goes up whenever a candidate is removed, so solving techniques can tell
+    // if there's anything new since they last ran; each group remembers the
+    // count when it last changed
+    long changes = 0;
+    private final long[] groupChanges;
     
     // We'll notify the display when a cell's value has changed
     PropertyChangeSupport propChangeSupport;
-    public static String NEW_CELL_VALUE = "new cell value";
+    
+    // Cells placed since the listeners were last told, sent as one 
+    // CELLS_CHANGED event (a CellSet) at the end of a fill or a solve, or 
+    // every so often during a long one. Placing a single cell sends it 
+    // straight away.
+    public static String CELLS_CHANGED = "cells changed";
+    private static final long PUBLISH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+    private final CellSet changedCells;
+    private boolean watched = false;
+    private int batches = 0;
+    private long lastPublished;
+    
+    // Seeds for random grids, so two made in the same second still differ
+    private static final Random SEEDS = new Random();
+    
+    // Solution counting is cheap enough to do often, so keep a solver around
+    private static final ThreadLocal<DancingLinksSolver> COUNTER = 
+            ThreadLocal.withInitial(DancingLinksSolver::new);
+    
+    // Scratch space for cloning
+    private static final ThreadLocal<ByteBuffer> SNAPSHOT = 
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(GridSnapshot.SIZE));
+    
+    // Solutions for solve1, by canonical form
+    private static final SolutionCache SOLUTIONS = new SolutionCache();
     
     /**
      * Make an empty grid of cells, storing them by row/col/square. This
@@ -41,19 +89,38 @@ public final class Grid implements PropertyChangeListener {
      * groups.
      */
     public Grid(){
+        this(Topology.STANDARD);
+    }
+    
+    /**
+     * Make an empty grid of any size, like {@link #Grid()}.
+     * @param topology 
+     */
+    public Grid(Topology topology){
         this.propChangeSupport = new PropertyChangeSupport(this);
+        this.topology = topology;
+        this.size = topology.size;
+        this.cells = new Cell[topology.cellCount];
+        this.emptyCells = new CellSet(topology.cellCount);
+        this.changedCells = new CellSet(topology.cellCount);
+        this.queue = new PropagationQueue(topology);
+        this.groupChanges = new long[topology.groupCount];
         
-        IntStream.range(0, 9).forEach(i -> gridRows[i] = new CellGroup(GroupType.ROW, i));
-        IntStream.range(0, 9).forEach(i -> gridCols[i] = new CellGroup(GroupType.COL, i));
-        IntStream.range(0, 9).forEach(i -> gridSquares[i] = new CellGroup(GroupType.SQUARE, i));
+        gridRows = new CellGroup[size];
+        gridCols = new CellGroup[size];
+        gridSquares = new CellGroup[size];
+        IntStream.range(0, size).forEach(i -> gridRows[i] = new CellGroup(topology, GroupType.ROW, i));
+        IntStream.range(0, size).forEach(i -> gridCols[i] = new CellGroup(topology, GroupType.COL, i));
+        IntStream.range(0, size).forEach(i -> gridSquares[i] = new CellGroup(topology, GroupType.SQUARE, i));
         
         // NOTE: to make the group solvers work, the cells MUST be placed in
         // order - row groups have to be left to right, columns top to bottom,
         // squares as shown below.
         try {
-            for(int row = 0; row < 9; row++){
-                for(int col = 0; col < 9; col++){
-                    Cell cell = new Cell(row, col);
+            for(int row = 0; row < size; row++){
+                for(int col = 0; col < size; col++){
+                    Cell cell = new Cell(topology, row, col);
+                    cells[row*size + col] = cell;
                     gridRows[row].addCell(col, cell);
                     gridCols[col].addCell(row, cell);
 
@@ -62,13 +129,11 @@ public final class Grid implements PropertyChangeListener {
                     // 3 4 5
                     // 6 7 8
                     int gridSquare = cell.square;
-                    int squarePosition = (row%3)*3 + (col%3);
+                    int squarePosition = topology.getSquarePosition(row, col);
                     gridSquares[gridSquare].addCell(squarePosition, cell);
-
-                    // Add all cells to empty cells
-                    emptyCells.add(new Pair(row, col));
                 }
             }
+            emptyCells.fill();
         } catch (Exception ex){
             System.out.println("Unable to add cells to grid. Exiting");
             System.exit(-1);
@@ -77,100 +142,228 @@ public final class Grid implements PropertyChangeListener {
     
     /**
      * Initialize a grid based on a given array input, assuming that the
-     * indices are data[row][col]
+     * indices are data[row][col]; the grid is as big as the array.
      * @param data 
      * @throws java.lang.Exception 
      */
     public Grid(Integer[][] data) throws Exception{
-        this();
+        this(Topology.forSize(data.length));
+        int[] values = new int[topology.cellCount];
         for (int row = 0; row < data.length; row++){
             for (int col = 0; col < data[0].length; col++){
                 if (data[row][col] != null){
-                    Cell cell = getCellAt(row, col);
-                    setCellValueInternally(cell, data[row][col]);
+                    values[row*size + col] = data[row][col];
                 }
             }
         }
+        load(values);
     }
     
     /**
-     * Easy way of cloning a grid
+     * Easy way of cloning a grid, through a {@link GridSnapshot} (or cell by
+     * cell, for grids that aren't 9x9).
      * @param grid 
      * @throws java.lang.Exception 
      */
     public Grid(Grid grid) throws Exception{
-        this();
-        for (HashMap.Entry entry : grid.filledCells.entrySet()){
-            Pair pair = (Pair) entry.getKey();
-            int value = (int) entry.getValue();
-            
-            int row = (int) pair.getRow();
-            int col = (int) pair.getCol();
-            
-            Cell cell = getCellAt(row, col);
-            setCellValueInternally(cell, value);
+        this(grid.topology);
+        if (topology == Topology.STANDARD){
+            ByteBuffer snapshot = SNAPSHOT.get();
+            snapshot.clear();
+            GridSnapshot.write(grid, snapshot);
+            snapshot.flip();
+            restore(snapshot);
+        } else {
+            for (int i = 0; i < cells.length; i++){
+                Cell cell = grid.cells[i];
+                if (!cell.isSetByGame){
+                    cells[i].setDigit(cell.getDigit());
+                } else if (!placeGiven(i, cell.getDigit())){
+                    throw new Exception("Grid has a clashing value at " + i);
+                }
+            }
+        }
+        
+        // Along with anything solving techniques have ruled out; the values 
+        // are the same, so techniques that already looked at the original 
+        // don't need to look at the clone again
+        for (int i = 0; i < cells.length; i++){
+            cells[i].candidates = grid.cells[i].candidates;
         }
+        queue.copyFrom(grid.queue);
+        changes = grid.changes;
+        System.arraycopy(grid.groupChanges, 0, groupChanges, 0, groupChanges.length);
     }
     
     /**
-     * Initialize a grid with some number of entries filled randomly (random
-     * locations as well as random (but valid) values). 
-     * @param numberOfEntries 
-     * @throws java.lang.Exception 
+     * Restore a grid from a {@link GridSnapshot} at the buffer's position,
+     * moving it past the snapshot.
+     * @param snapshot
+     * @throws Exception if the snapshot is broken
      */
-    public Grid(int numberOfEntries) throws Exception{
-        this(); // Start with an empty grid
-        
-        // Seed the random number generator
-        Random rand = new Random(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
-        
-        // Make a fully correct grid, then we'll take off values
-        for (CellGroup square : this.gridSquares){
-            // Avoid concurrent modification exception by cloning
-            ArrayList<Integer> emptyInds = (ArrayList) square.emptyCellInds.clone();
-            
-            // For each empty cell, set it to a value from its potential values
-            for (Iterator it = emptyInds.iterator(); it.hasNext();){
-                int position = (int) it.next();
-                List<Integer> potentialVals = square.getCell(position).potentialValues;
-                
-                // Pick some random index from the list of potential values
-                int value = rand.nextInt(potentialVals.size());
-                setCellValueInternally(square.getCell(position), potentialVals.get(value));
-                it.remove();
-            }
+    public Grid(ByteBuffer snapshot) throws Exception{
+        this();
+        restore(snapshot);
+    }
+    
+    /**
+     * Set the values from a snapshot in one go. They came from a grid, so 
+     * any clash between them means the snapshot is broken.
+     * @param snapshot 
+     */
+    private void restore(ByteBuffer snapshot) throws Exception{
+        int start = snapshot.position();
+        if (snapshot.remaining() < GridSnapshot.SIZE){
+            throw new Exception("Snapshot is too short");
         }
         
-        // Get cells at random from list of empty ones
-        ArrayList<Integer> emptyCellInds = 
-            new ArrayList<>(IntStream.range(0, 81).
-                    mapToObj(Integer::new).collect(Collectors.toList()));
-        
-        try {
-            // Try to set random cells; hopefully # of entries is small enough that
-            // this isn't too difficult
-            // TODO: test how many iterations this takes for various # of entries?
-            int i = 0;
-            while(i < numberOfEntries){
-                int cellNum = rand.nextInt(emptyCellInds.size());
-                int cellInd = emptyCellInds.get(cellNum);
-                int row = cellInd/9;
-                int col = cellInd%9;
-                int value = rand.nextInt(9) + 1;
-
-                // We may not be successful based on whether placement is valid.
-                if (checkValueValidInGrid(row, col, value)){
-                    setCellValueInternally(this.getCellAt(row, col), value);
-                    i++;
-                    emptyCellInds.remove(cellNum);
+        for (int i = 0; i < 81; i++){
+            int value = GridSnapshot.valueAt(snapshot, start, i);
+            boolean given = GridSnapshot.isGivenAt(snapshot, start, i);
+            if (value > 9 || (given && value == 0)){
+                throw new Exception("Snapshot has a bad value at " + i);
+            }
+            if (given){
+                if (!placeGiven(i, value)){
+                    throw new Exception("Snapshot has a clashing value at " + i);
                 }
+            } else {
+                // The player's values don't count for the groups
+                cells[i].setDigit(value);
             }
-        } catch (Exception ex){
-            System.out.println("Unable to set random cell values");
-            System.exit(-2);
+        }
+        updateCandidates();
+        snapshot.position(start + GridSnapshot.SIZE);
+    }
+    
+    /**
+     * Set the givens from an array of values in one go. Like placing them 
+     * one by one with {@link #setCellValueInternally}, values that don't fit 
+     * are left out, but candidates are only worked out once at the end.
+     * @param values a value for every cell in row-major order, 0 for empty
+     */
+    private void load(int[] values) throws Exception{
+        for (int i = 0; i < cells.length; i++){
+            int value = values[i];
+            if (value != 0 && !placeGiven(i, value) && LOG.isLoggable(Level.FINE)){
+                LOG.fine("Value " + value + " is invalid for cell " + i);
+            }
+        }
+        updateCandidates();
+    }
+    
+    private void load(byte[] values) throws Exception{
+        for (int i = 0; i < cells.length; i++){
+            int value = values[i];
+            if (value != 0 && !placeGiven(i, value) && LOG.isLoggable(Level.FINE)){
+                LOG.fine("Value " + value + " is invalid for cell " + i);
+            }
+        }
+        updateCandidates();
+    }
+    
+    /**
+     * Place a given without touching anyone's candidates; only for loading,
+     * which calls {@link #updateCandidates()} once it's done.
+     * @param index row*size + col
+     * @param value
+     * @return false if the value doesn't fit
+     */
+    private boolean placeGiven(int index, int value) throws Exception{
+        int row = topology.row[index];
+        int col = topology.col[index];
+        if (!checkValueValidInGrid(row, col, value)){
+            return false;
+        }
+        Cell cell = cells[index];
+        cell.setDigit(value);
+        cell.isSetByGame = true;
+        emptyCells.remove(index);
+        gridRows[row].addFoundValue(col, value);
+        gridCols[col].addFoundValue(row, value);
+        gridSquares[cell.square].addFoundValue(topology.squarePosition[index], value);
+        return true;
+    }
+    
+    private void updateCandidates(){
+        for (int i = emptyCells.first(); i >= 0; i = emptyCells.next(i + 1)){
+            Cell cell = cells[i];
+            cell.candidates = gridRows[cell.row].getMissingValues() 
+                    & gridCols[cell.col].getMissingValues()
+                    & gridSquares[cell.square].getMissingValues();
         }
     }
     
+    /**
+     * Initialize a grid with some number of entries filled randomly (random
+     * locations as well as random (but valid) values). The puzzle always has
+     * exactly one solution; see {@link PuzzleGenerator}.
+     * @param numberOfEntries 
+     * @throws java.lang.Exception 
+     */
+    public Grid(int numberOfEntries) throws Exception{
+        this(numberOfEntries, SEEDS.nextLong());
+    }
+    
+    /**
+     * Initialize a random grid the same way every time for a given seed.
+     * @param numberOfEntries
+     * @param seed
+     * @throws Exception 
+     */
+    public Grid(int numberOfEntries, long seed) throws Exception{
+        this(new PuzzleGenerator(seed).generate(numberOfEntries));
+    }
+    
+    /**
+     * Initialize a grid from an array of values.
+     * @param values 81 values in row-major order, 0 for empty
+     * @throws Exception 
+     */
+    Grid(int[] values) throws Exception{
+        this(Topology.STANDARD, values);
+    }
+    
+    private Grid(Topology topology, int[] values) throws Exception{
+        this(topology);
+        load(values);
+    }
+    
+    /**
+     * Make a grid from an array of values, without boxing any of them.
+     * Values that clash with ones before them are left out.
+     * @param values 81 values in row-major order, 0 for empty
+     * @return
+     * @throws Exception 
+     */
+    public static Grid of(int[] values) throws Exception{
+        return new Grid(values);
+    }
+    
+    /**
+     * Make a grid of any size from an array of values, like 
+     * {@link #of(int[])}.
+     * @param topology
+     * @param values a value for every cell in row-major order, 0 for empty
+     * @return
+     * @throws Exception 
+     */
+    public static Grid of(Topology topology, int[] values) throws Exception{
+        return new Grid(topology, values);
+    }
+    
+    /**
+     * @param values 81 values in row-major order, 0 for empty
+     * @return
+     * @throws Exception 
+     * @see #of(int[])
+     */
+    public static Grid of(byte[] values) throws Exception{
+        Grid grid = new Grid();
+        grid.load(values);
+        return grid;
+    }
+    
     /**
      * Check whether a value can be placed in a cell. To be a valid operation,
      * the value must not exist elsewhere in the row, column, or square.
@@ -180,21 +373,181 @@ public final class Grid implements PropertyChangeListener {
      * @return 
      */
     public boolean checkValueValidInGrid(int row, int col, int value){
-        boolean validValue = (0 < value && value <= 9);
-        return (validValue && 
+        return (topology.isValue(value) && 
                 !gridRows[row].containsValue(value) &&
                 !gridCols[col].containsValue(value) && 
-                !gridSquares[getSquare(row, col)].containsValue(value));
+                !gridSquares[topology.getSquare(row, col)].containsValue(value));
     }
     
     /** 
-     * Solve the puzzle! 
+     * Solve the puzzle! Puzzles that have been solved before, even with 
+     * their digits or lines shuffled, come from the shared cache (for 9x9
+     * grids only).
      * @return 
      * @throws java.lang.Exception
      */
     public boolean solve1() throws Exception{
-        MySolver solver = new MySolver(this);
-        return solver.solve();
+        return solve1(new SolveBudget()) == SolveStatus.SOLVED;
+    }
+    
+    /**
+     * Solve the puzzle like {@link #solve1()}, giving up once the budget is
+     * spent. Values the solver was sure of may be filled in by then.
+     * @param budget
+     * @return SOLVED, UNSOLVABLE, or why the budget ran out
+     * @throws Exception 
+     */
+    public SolveStatus solve1(SolveBudget budget) throws Exception{
+        return solve1(budget, true);
+    }
+    
+    /**
+     * Solve the puzzle like {@link #solve1(SolveBudget)}, optionally leaving
+     * out the shared solution cache so MySolver does all the work (for 
+     * measuring it, say).
+     * @param budget
+     * @param useCache whether to look in and add to the cache
+     * @return SOLVED, UNSOLVABLE, or why the budget ran out
+     * @throws Exception 
+     */
+    public SolveStatus solve1(SolveBudget budget, boolean useCache) throws Exception{
+        startChanges();
+        try {
+            return solve1Cached(budget, useCache);
+        } finally {
+            endChanges();
+        }
+    }
+    
+    // From the cache if we can, otherwise with MySolver
+    private SolveStatus solve1Cached(SolveBudget budget, boolean useCache) throws Exception{
+        if (!useCache || topology != Topology.STANDARD){
+            return new MySolver(this).solve(this, budget);
+        }
+        int[] values = new int[81];
+        copyValuesTo(values);
+        Canonical canonical = Canonical.of(values);
+        if (SOLUTIONS.get(canonical, values)){
+            return fillFrom(values) ? SolveStatus.SOLVED : SolveStatus.UNSOLVABLE;
+        }
+        
+        SolveStatus status = new MySolver(this).solve(this, budget);
+        if (status != SolveStatus.SOLVED){
+            return status;
+        }
+        copyValuesTo(values);
+        for (int value : values){
+            if (value == 0){
+                // Not all ours, so not just the puzzle's solution
+                return status;
+            }
+        }
+        SOLUTIONS.put(canonical, values);
+        return status;
+    }
+    
+    /**
+     * @return the cache of solutions shared by {@link #solve1()}
+     */
+    public static SolutionCache getSolutionCache(){
+        return SOLUTIONS;
+    }
+    
+    /**
+     * Solve the puzzle with a specific engine.
+     * @param solver
+     * @return
+     * @throws Exception 
+     */
+    public boolean solve(Solver solver) throws Exception{
+        startChanges();
+        try {
+            return solver.solve(this);
+        } finally {
+            endChanges();
+        }
+    }
+    
+    /**
+     * Solve the puzzle with a specific engine, keeping track of how it went.
+     * @param solver
+     * @return the solver's counters, including whether it was solved
+     * @throws Exception 
+     */
+    public SolverStats solveWithStats(Solver solver) throws Exception{
+        solve(solver);
+        return solver.getStats();
+    }
+    
+    /**
+     * Count the solutions of the grid, stopping early once we get to the 
+     * limit. Use a limit of 2 to check whether the solution is unique.
+     * @param limit
+     * @return the number of solutions, at most limit
+     */
+    public int countSolutions(int limit){
+        if (topology != Topology.STANDARD){
+            return new DancingLinksSolver(topology).countSolutions(this, limit);
+        }
+        return COUNTER.get().countSolutions(this, limit);
+    }
+    
+    /**
+     * Copy the values set internally into an array, in row-major order with 0
+     * for anything else.
+     * @param values 
+     */
+    public void copyValuesTo(int[] values){
+        for (int i = 0; i < cells.length; i++){
+            Cell cell = cells[i];
+            values[i] = cell.isSetByGame ? cell.getDigit() : 0;
+        }
+    }
+    
+    /**
+     * Set every empty cell from an array of solved values.
+     * @param values a value for every cell in row-major order
+     * @return whether all the values were valid
+     * @throws Exception 
+     */
+    public boolean fillFrom(int[] values) throws Exception{
+        startChanges();
+        try {
+            for (int i = 0; i < cells.length; i++){
+                Cell cell = cells[i];
+                if (!cell.isSetByGame && !setCellValueInternally(cell, values[i])){
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            endChanges();
+        }
+    }
+    
+    // Hold on to placed cells until the outermost step's done
+    private void startChanges(){
+        batches++;
+    }
+    
+    private void endChanges(){
+        if (--batches == 0){
+            publishChanges();
+        }
+    }
+    
+    /**
+     * Tell the listeners about every cell placed since they were last told.
+     */
+    private void publishChanges(){
+        lastPublished = System.nanoTime();
+        if (changedCells.isEmpty()){
+            return;
+        }
+        CellSet changed = new CellSet(cells.length);
+        changed.copyFrom(changedCells);
+        changedCells.clear();
+        propChangeSupport.firePropertyChange(CELLS_CHANGED, null, changed);
     }
     
     /**
@@ -205,21 +558,28 @@ public final class Grid implements PropertyChangeListener {
      */
     boolean setCellValueInternally(Cell cell, int value) throws Exception{
         if (!checkValueValidInGrid(cell.row, cell.col, value)){
-            System.out.println("Value " + value + " is invalid for cell " + cell.toString());
+            if (LOG.isLoggable(Level.FINE)){
+                LOG.fine("Value " + value + " is invalid for cell " + cell.toString());
+            }
             return false;
         }
         
         cell.setValue(value);
         cell.isSetByGame = true;
         
-        emptyCells.remove(new Pair(cell.row, cell.col));
-        filledCells.put(new Pair(cell.row,cell.col), value);
+        emptyCells.remove(cell.row*size + cell.col);
                     
         // When we update the cell's value, we should also 
         // update the cell groups it's in and let the display know to fill the cell
         removedCellUpdateGrid(cell, value);
         
-        propChangeSupport.firePropertyChange(NEW_CELL_VALUE, null, cell);
+        // Solver copies have no one listening, so they skip all this
+        if (watched){
+            changedCells.add(cell.row*size + cell.col);
+            if (batches == 0 || System.nanoTime() - lastPublished >= PUBLISH_INTERVAL){
+                publishChanges();
+            }
+        }
         
         return true;
     }
@@ -228,27 +588,155 @@ public final class Grid implements PropertyChangeListener {
         // TODO: is there a better way than doing this manually? Fire a property
         // change from within the cell and have all groups listen to their cells
         // for such a change? That's a lot of listening going on
-        gridRows[cell.row].clearValueFromCells(cell.col, value);
-        gridCols[cell.col].clearValueFromCells(cell.row, value);
-        int square = getSquare(cell.row, cell.col);
-        int position = getSquarePosition(cell.row, cell.col);
-        gridSquares[square].clearValueFromCells(position, value);
+        changes++;
+        queueChanges(gridRows[cell.row], gridRows[cell.row].clearValueFromCells(cell.col, value));
+        queueChanges(gridCols[cell.col], gridCols[cell.col].clearValueFromCells(cell.row, value));
+        int square = cell.square;
+        int position = topology.getSquarePosition(cell.row, cell.col);
+        queueChanges(gridSquares[square], gridSquares[square].clearValueFromCells(position, value));
+        
+        // The cell's other candidates are gone from its groups too
+        changedGroups(cell);
+    }
+    
+    /**
+     * Let the solver know about cells that lost a candidate: the cell itself
+     * if it's down to one or none, and every group it's in.
+     * @param group
+     * @param positions mask of positions in the group that changed
+     */
+    private void queueChanges(CellGroup group, int positions){
+        for (; positions != 0; positions &= positions - 1){
+            Cell peer = group.getCell(Integer.numberOfTrailingZeros(positions));
+            if (peer.getCandidateCount() <= 1){
+                queue.addCell(peer.row*size + peer.col);
+            }
+            changedGroups(peer);
+        }
+    }
+    
+    /**
+     * Rule out some of an empty cell's candidates, for solving techniques 
+     * that can do that without placing a value. The cell is queued up like
+     * any other change.
+     * @param cell
+     * @param mask the candidates to remove, bit (v-1) for value v
+     * @return whether the cell lost any candidates
+     */
+    public boolean eliminateCandidates(Cell cell, int mask){
+        if (cell.isSetByGame || (cell.candidates & mask) == 0){
+            return false;
+        }
+        cell.candidates &= ~mask;
+        changes++;
+        if (cell.getCandidateCount() <= 1){
+            queue.addCell(cell.row*size + cell.col);
+        }
+        changedGroups(cell);
+        return true;
+    }
+    
+    private void changedGroups(Cell cell){
+        queue.addGroup(cell.row);
+        queue.addGroup(size + cell.col);
+        queue.addGroup(2*size + cell.square);
+        groupChanges[cell.row] = changes;
+        groupChanges[size + cell.col] = changes;
+        groupChanges[2*size + cell.square] = changes;
+    }
+    
+    /**
+     * @return a count that goes up whenever a candidate is ruled out
+     */
+    public long getChanges(){
+        return changes;
+    }
+    
+    /**
+     * @param group numbered as in {@link #getGroup(int)}
+     * @param since a value of {@link #getChanges()}
+     * @return whether any of the group's candidates have changed after that
+     */
+    public boolean hasChangedSince(int group, long since){
+        return groupChanges[group] > since;
+    }
+    
+    /**
+     * Put every group, and every cell with one or no candidates, back on the 
+     * queue, for when we don't know what changed since it was last emptied.
+     */
+    void queueEverything(){
+        for (int i = emptyCells.first(); i >= 0; i = emptyCells.next(i + 1)){
+            if (cells[i].getCandidateCount() <= 1){
+                queue.addCell(i);
+            }
+        }
+        for (int group = 0; group < groupChanges.length; group++){
+            queue.addGroup(group);
+        }
+    }
+    
+    /**
+     * @param group 0-8 for rows, 9-17 for columns, 18-26 for squares; see
+     * {@link Topology} for other sizes
+     * @return 
+     */
+    public CellGroup getGroup(int group){
+        if (group < size){
+            return gridRows[group];
+        } else if (group < 2*size){
+            return gridCols[group - size];
+        }
+        return gridSquares[group - 2*size];
+    }
+    
+    public Topology getTopology(){
+        return topology;
     }
     
     public Cell getCellAt(int row, int col){
-        return gridRows[row].getCell(col);
+        return cells[row*size + col];
+    }
+    
+    /**
+     * @param index row*size + col
+     * @return 
+     */
+    public Cell getCell(int index){
+        return cells[index];
     }
     
     public Integer getValueAt(int row, int col){
         return getCellAt(row, col).getValue();
     }
     
+    /**
+     * @param row
+     * @param col
+     * @return the cell's value, or 0 if it's empty
+     */
+    public int getDigitAt(int row, int col){
+        return getCellAt(row, col).getDigit();
+    }
+    
+    /**
+     * Listen for {@link #CELLS_CHANGED}, which comes on whatever thread 
+     * changed the grid.
+     * @param pcl 
+     */
     public void addPropertyChangeListener(PropertyChangeListener pcl){
         propChangeSupport.addPropertyChangeListener(pcl);
+        watched = true;
+    }
+    
+    public void removePropertyChangeListener(PropertyChangeListener pcl){
+        propChangeSupport.removePropertyChangeListener(pcl);
+        watched = propChangeSupport.hasListeners(null);
     }
     
     /**
-     * Given the row and column of a cell, determine the "square" it's in.
+     * Given the row and column of a cell, determine the "square" it's in, for
+     * a 9x9 grid; see {@link Topology#getSquare(int, int)} for other sizes.
      * @param row
      * @param col
      * @return 
@@ -263,7 +751,7 @@ public final class Grid implements PropertyChangeListener {
     
     /**
      * Given the row and column of a cell, determine where it is within its 
-     * square.
+     * 3x3 square.
      * @param row
      * @param col
      * @return 
@@ -271,25 +759,166 @@ public final class Grid implements PropertyChangeListener {
     public static int getSquarePosition(int row, int col){
         return (row%3)*3 + (col%3);
     }
-
-    @Override
-    public void propertyChange(PropertyChangeEvent pce) {
-        if (pce.getPropertyName().equals(NEW_CELL_VALUE)){
-            Cell cell = (Cell) pce.getNewValue();
-            try{
-                removedCellUpdateGrid(cell, cell.getValue());
-            } catch (Exception ex){
-                System.out.println("Error trying to set (" + cell.row + "," + 
-                        cell.col + ") to " + cell.getValue());
+    
+    /**
+     * @return a read-only view of the cells not set by the game
+     */
+    public Set<Pair> getEmptyCells(){
+        return emptyView;
+    }
+    
+    /**
+     * @return a read-only view of the cells set by the game, with their values
+     */
+    public Map<Pair, Integer> getFilledCells(){
+        return filledView;
+    }
+    
+    /**
+     * Empty cells as pairs, straight from {@link #emptyCells}.
+     */
+    private final class EmptyCells extends AbstractSet<Pair> {
+        
+        @Override
+        public int size(){
+            return emptyCells.size();
+        }
+        
+        @Override
+        public boolean isEmpty(){
+            return emptyCells.isEmpty();
+        }
+        
+        @Override
+        public boolean contains(Object o){
+            return (o instanceof Pair) && indexIn((Pair) o, true);
+        }
+        
+        @Override
+        public Iterator<Pair> iterator(){
+            return new CellIterator<Pair>(true){
+                @Override
+                Pair get(int index){
+                    return pairAt(index);
+                }
+            };
+        }
+        
+        @Override
+        public void forEach(Consumer<? super Pair> action){
+            for (int i = emptyCells.first(); i >= 0; i = emptyCells.next(i + 1)){
+                action.accept(pairAt(i));
+            }
+        }
+    }
+    
+    /**
+     * Filled cells as pairs, the ones not in {@link #emptyCells}, with the 
+     * values from the cells.
+     */
+    private final class FilledCells extends AbstractMap<Pair, Integer> {
+        
+        private final Set<Entry<Pair, Integer>> entries = new AbstractSet<Entry<Pair, Integer>>(){
+            @Override
+            public int size(){
+                return FilledCells.this.size();
+            }
+            
+            @Override
+            public Iterator<Entry<Pair, Integer>> iterator(){
+                return new CellIterator<Entry<Pair, Integer>>(false){
+                    @Override
+                    Entry<Pair, Integer> get(int index){
+                        return new SimpleImmutableEntry<>(pairAt(index), cells[index].getValue());
+                    }
+                };
             }
+        };
+        
+        @Override
+        public int size(){
+            return cells.length - emptyCells.size();
         }
+        
+        @Override
+        public boolean containsKey(Object key){
+            return (key instanceof Pair) && indexIn((Pair) key, false);
+        }
+        
+        @Override
+        public Integer get(Object key){
+            return containsKey(key) ? cells[indexOf((Pair) key)].getValue() : null;
+        }
+        
+        @Override
+        public Set<Entry<Pair, Integer>> entrySet(){
+            return entries;
+        }
+        
+        @Override
+        public void forEach(BiConsumer<? super Pair, ? super Integer> action){
+            for (int i = 0; i < cells.length; i++){
+                if (!emptyCells.contains(i)){
+                    action.accept(pairAt(i), cells[i].getValue());
+                }
+            }
+        }
+    }
+    
+    private boolean indexIn(Pair pair, boolean empty){
+        int index = indexOf(pair);
+        return index >= 0 && emptyCells.contains(index) == empty;
+    }
+    
+    private int indexOf(Pair pair){
+        return topology.indexOf(pair.getRow(), pair.getCol());
     }
     
-    public HashSet<Pair> getEmptyCells(){
-        return emptyCells;
+    // Shared pairs only go up to 9x9
+    private Pair pairAt(int index){
+        if (topology == Topology.STANDARD){
+            return Pair.of(index);
+        }
+        return new Pair(topology.row[index], topology.col[index]);
     }
     
-    public HashMap<Pair, Integer> getFilledCells(){
-        return filledCells;
+    /**
+     * Goes through the empty (or filled) cells in index order.
+     */
+    private abstract class CellIterator<T> implements Iterator<T> {
+        
+        private final boolean empty;
+        private int next;
+        
+        CellIterator(boolean empty){
+            this.empty = empty;
+            this.next = find(0);
+        }
+        
+        private int find(int from){
+            for (int i = from; i < cells.length; i++){
+                if (emptyCells.contains(i) == empty){
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        abstract T get(int index);
+        
+        @Override
+        public boolean hasNext(){
+            return next >= 0;
+        }
+        
+        @Override
+        public T next(){
+            if (next < 0){
+                throw new NoSuchElementException();
+            }
+            T item = get(next);
+            next = find(next + 1);
+            return item;
+        }
     }
 }
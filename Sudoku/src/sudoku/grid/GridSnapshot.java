@@ -0,0 +1,123 @@
+package sudoku.grid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A grid packed into 52 bytes: 41 bytes of values, 4 bits per cell in 
+ * row-major order (low nibble first, 0 for empty), then an 11-byte bitmap of 
+ * which cells were set by the game rather than the player. Candidates aren't
+ * kept; they're worked out again from the values.
+ * 
+ * Writing and reading go straight between the grid and the buffer, without
+ * making anything along the way.
+ */
+public final class GridSnapshot {
+    
+    public static final int VALUE_BYTES = 41;
+    public static final int GIVEN_BYTES = 11;
+    public static final int SIZE = VALUE_BYTES + GIVEN_BYTES;
+    
+    private GridSnapshot(){
+    }
+    
+    /**
+     * Write a grid at the buffer's position, moving it past the snapshot.
+     * @param grid a 9x9 grid
+     * @param buffer needs at least {@link #SIZE} bytes left
+     * @throws IllegalArgumentException if the grid isn't 9x9
+     */
+    public static void write(Grid grid, ByteBuffer buffer){
+        checkStandard(grid);
+        for (int i = 0; i < 81; i += 2){
+            int low = valueOf(grid, i);
+            int high = (i + 1 < 81) ? valueOf(grid, i + 1) : 0;
+            buffer.put((byte) (low | (high << 4)));
+        }
+        for (int i = 0; i < 81; i += 8){
+            int bits = 0;
+            for (int j = i; j < i + 8 && j < 81; j++){
+                if (grid.getCellAt(j/9, j%9).isSetByGame){
+                    bits |= 1 << (j - i);
+                }
+            }
+            buffer.put((byte) bits);
+        }
+    }
+    
+    // Snapshots only have room for 81 cells
+    private static void checkStandard(Grid grid){
+        if (grid.getTopology() != Topology.STANDARD){
+            throw new IllegalArgumentException("Only 9x9 grids can be saved");
+        }
+    }
+    
+    private static int valueOf(Grid grid, int index){
+        return grid.getCellAt(index/9, index%9).getDigit();
+    }
+    
+    /**
+     * Read a grid from the buffer's position, moving it past the snapshot.
+     * @param buffer
+     * @return
+     * @throws Exception if the snapshot is broken
+     */
+    public static Grid read(ByteBuffer buffer) throws Exception{
+        return new Grid(buffer);
+    }
+    
+    /**
+     * @param buffer
+     * @param start where the snapshot starts in the buffer
+     * @param index cell index, row*9 + col
+     * @return the cell's value, 0 for empty
+     */
+    static int valueAt(ByteBuffer buffer, int start, int index){
+        int packed = buffer.get(start + index/2);
+        return (packed >> ((index & 1)*4)) & 0xF;
+    }
+    
+    static boolean isGivenAt(ByteBuffer buffer, int start, int index){
+        return (buffer.get(start + VALUE_BYTES + index/8) & (1 << (index%8))) != 0;
+    }
+    
+    /**
+     * @param grid a 9x9 grid
+     * @return the grid's snapshot
+     * @throws IllegalArgumentException if the grid isn't 9x9
+     */
+    public static byte[] toBytes(Grid grid){
+        checkStandard(grid);
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        write(grid, buffer);
+        return buffer.array();
+    }
+    
+    /**
+     * Save a game in progress.
+     * @param grid a 9x9 grid
+     * @param file
+     * @throws IOException 
+     * @throws IllegalArgumentException if the grid isn't 9x9
+     */
+    public static void save(Grid grid, Path file) throws IOException{
+        checkStandard(grid);
+        Files.write(file, toBytes(grid));
+    }
+    
+    /**
+     * Load a game saved with {@link #save(Grid, Path)}.
+     * @param file
+     * @return
+     * @throws Exception 
+     */
+    public static Grid load(Path file) throws Exception{
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length != SIZE){
+            throw new Exception(file + " is not a saved game");
+        }
+        return read(ByteBuffer.wrap(bytes));
+    }
+}
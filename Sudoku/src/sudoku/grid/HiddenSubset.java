@@ -0,0 +1,90 @@
+package sudoku.grid;
+
+/**
+ * If n values can only go in the same n cells of a group, those cells have
+ * to hold them, so they can't hold anything else.
+ */
+public class HiddenSubset implements Technique {
+    
+    private static final String[] NAMES = {"hidden_pair", "hidden_triple", "hidden_quad"};
+    
+    private final int size;
+    
+    // Where each value can go in the group we're looking at, by value - 1
+    private final int[] positions = new int[Topology.MAX_SIZE];
+    
+    /**
+     * @param size 2 for pairs, 3 for triples, 4 for quads
+     */
+    public HiddenSubset(int size){
+        assert(2 <= size && size <= 4);
+        this.size = size;
+    }
+    
+    @Override
+    public String getName(){
+        return NAMES[size - 2];
+    }
+    
+    @Override
+    public int apply(Grid grid, long since) throws Exception{
+        int eliminated = 0;
+        for (int g = 0; g < grid.topology.groupCount; g++){
+            if (!grid.hasChangedSince(g, since)){
+                continue;
+            }
+            CellGroup group = grid.getGroup(g);
+            if (Integer.bitCount(group.getEmptyPositions()) <= size){
+                continue;
+            }
+            
+            // Values with only one place are hidden singles, and values with 
+            // none are the solver's problem
+            int eligible = 0;
+            group.getPositionsOfValues(positions);
+            for (int mask = group.getMissingValues(); mask != 0; mask &= mask - 1){
+                int value = Candidates.lowest(mask);
+                int count = Integer.bitCount(positions[value - 1]);
+                if (2 <= count && count <= size){
+                    eligible |= Candidates.bit(value);
+                }
+            }
+            if (Candidates.count(eligible) >= size){
+                eliminated += search(grid, group, eligible, 0, 0, 0);
+            }
+        }
+        return eliminated;
+    }
+    
+    /**
+     * Try each combination of eligible values, dropping any that already 
+     * spread over too many cells.
+     */
+    private int search(Grid grid, CellGroup group, int remaining, int values, 
+            int cells, int depth){
+        if (depth == size){
+            if (Integer.bitCount(cells) != size){
+                return 0;
+            }
+            int eliminated = 0;
+            for (int mask = cells; mask != 0; mask &= mask - 1){
+                Cell cell = group.getCell(Integer.numberOfTrailingZeros(mask));
+                if (grid.eliminateCandidates(cell, ~values & grid.topology.allValues)){
+                    eliminated++;
+                }
+            }
+            return eliminated;
+        }
+        
+        int eliminated = 0;
+        for (int rest = remaining; rest != 0; rest &= rest - 1){
+            int value = Candidates.lowest(rest);
+            int union = cells | positions[value - 1];
+            if (Integer.bitCount(union) <= size){
+                eliminated += search(grid, group, rest & (rest - 1), 
+                        values | Candidates.bit(value), union, depth + 1);
+            }
+        }
+        return eliminated;
+    }
+}
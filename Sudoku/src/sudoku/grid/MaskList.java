@@ -0,0 +1,48 @@
+package sudoku.grid;
+
+import java.util.AbstractList;
+
+/**
+ * A read-only list view over a bit mask, so code that still wants a 
+ * List<Integer> (like the old potentialValues) can keep working while the
+ * real state stays in an int. Bit i shows up as the element (i + offset).
+ */
+abstract class MaskList extends AbstractList<Integer> {
+    
+    private final int offset;
+    
+    MaskList(int offset){
+        this.offset = offset;
+    }
+    
+    /**
+     * @return the current mask backing the view
+     */
+    abstract int mask();
+
+    @Override
+    public Integer get(int index) {
+        int mask = mask();
+        if (index < 0 || index >= Integer.bitCount(mask)){
+            throw new IndexOutOfBoundsException("Index " + index);
+        }
+        for (int i = 0; i < index; i++){
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask) + offset;
+    }
+
+    @Override
+    public int size() {
+        return Integer.bitCount(mask());
+    }
+    
+    @Override
+    public boolean contains(Object o){
+        if (!(o instanceof Integer)){
+            return false;
+        }
+        int bit = (Integer) o - offset;
+        return (0 <= bit && bit < 32 && (mask() & (1 << bit)) != 0);
+    }
+}
@@ -1,10 +1,11 @@
 package sudoku.grid;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This is the based on how I might solve it.
@@ -13,134 +14,314 @@ import java.util.Map.Entry;
  *    that's the cell's value
  * 2. Next, for each cell group, for each missing value, see if there's
  *    only 1 cell that can hold it.
- * 3. Other techniques that seem tricky to implement, so do something else
- * Once we haven't found any new values by steps 1 or 2, we can guess the value 
+ * 3. Once singles run dry, rule out candidates with harder {@link Technique}s,
+ *    cheapest first, going back to step 1 as soon as one of them works.
+ * Steps 1 and 2 only look at the cells and groups that placing a value changed,
+ * which the grid keeps in its {@link PropagationQueue}, and a technique is 
+ * skipped if nothing has changed since it last came up empty.
+ * Once we haven't found anything new by steps 1 to 3, we can guess the value 
  * for a single cell and try to solve then; do this recursively until solved.
  */
-public class MySolver {
+public class MySolver implements Solver {
+    private static final Logger LOG = Logger.getLogger(MySolver.class.getName());
     
-    private final Grid grid;
+    private Grid grid;
+    
+    // Shared with the solvers we make for guesses, which are "depth" deep
+    private final List<Technique> techniques;
+    private final SolverStats stats;
+    private final int depth;
+    
+    // The grid's change count when each technique last ran
+    private final long[] lastRun;
+    
+    // Limits for the solve in progress, shared with the guesses
+    private SolveBudget budget;
+    
+    public MySolver(){
+        this((Grid) null);
+    }
     
     public MySolver(Grid grid){
+        this(grid, defaultTechniques(), new SolverStats(), 0, null, null);
+    }
+    
+    /**
+     * @param techniques what to try after singles, in order; these may keep
+     * state between calls, so don't share them with other threads
+     */
+    public MySolver(List<Technique> techniques){
+        this(null, techniques, new SolverStats(), 0, null, null);
+    }
+    
+    private MySolver(Grid grid, List<Technique> techniques, SolverStats stats, 
+            int depth, long[] lastRun, SolveBudget budget){
         this.grid = grid;
+        this.budget = budget;
+        this.techniques = techniques;
+        this.stats = stats;
+        this.depth = depth;
+        if (lastRun == null){
+            this.lastRun = new long[techniques.size()];
+            Arrays.fill(this.lastRun, -1);
+        } else {
+            this.lastRun = lastRun.clone();
+        }
+    }
+    
+    /**
+     * @return a new set of every technique we have, roughly cheapest first
+     */
+    public static List<Technique> defaultTechniques(){
+        return Arrays.asList(
+                new PointingCandidates(),
+                new BoxLineReduction(),
+                new NakedSubset(2),
+                new HiddenSubset(2),
+                new NakedSubset(3),
+                new HiddenSubset(3),
+                new Fish(2),
+                new NakedSubset(4),
+                new HiddenSubset(4),
+                new Fish(3));
+    }
+    
+    @Override
+    public boolean solve(Grid grid) throws Exception{
+        this.grid = grid;
+        return solve();
+    }
+    
+    @Override
+    public SolveStatus solve(Grid grid, SolveBudget budget) throws Exception{
+        this.grid = grid;
+        this.budget = budget;
+        try {
+            return budget.statusFor(solve());
+        } finally {
+            this.budget = null;
+        }
+    }
+    
+    @Override
+    public SolverStats getStats(){
+        return stats;
+    }
+    
+    public List<Technique> getTechniques(){
+        return techniques;
+    }
+    
+    public boolean solve() throws Exception{
+        if (LOG.isLoggable(Level.FINE)){
+            LOG.fine("Attempting to solve.");
+        }
+        long startTime = System.nanoTime();
+        
+        start(grid);
+        boolean solved = run();
+        stats.solved = solved;
+        stats.elapsedNanos = System.nanoTime() - startTime;
+        
+        if (LOG.isLoggable(Level.FINE)){
+            //divide by 1000000 to get milliseconds.
+            LOG.fine("Solved in " + stats.elapsedNanos/1e6 + " milliseconds");
+        }
+        return solved;
+    }
+    
+    /**
+     * Get ready to work on a grid from scratch.
+     * @param grid 
+     */
+    void start(Grid grid){
+        this.grid = grid;
+        stats.reset();
+        Arrays.fill(lastRun, -1);
+        
+        // Clones made for guesses queue up everything they've changed, but 
+        // the grid we were given may have been edited since it was last solved
+        grid.queueEverything();
     }
     
     // NOTE - I think I need to make sure that updates use "setCellValueInternally"
     // so that values get checked before they get set - since I'm going to try
     // guessing, we may get failures
-    public boolean solve() throws Exception{
-        System.out.println("Attempting to solve.");
-        long startTime = System.nanoTime();
+    private boolean run() throws Exception{
+        while (!grid.emptyCells.isEmpty()){
+            if (isSpent()){
+                return false;
+            }
+            if (!propagate()){
+                return false;
+            }
+            if (grid.emptyCells.isEmpty()){
+                break;
+            }
+            
+            // Step 3.
+            if (applyTechniques() >= 0){
+                continue;
+            }
+            if (LOG.isLoggable(Level.FINER)){
+                LOG.finer("Nothing left to propagate, time to start guessing");
+            }
+
+            // Step 4. A wrong guess is one less candidate, so carry on
+            if (guessSolver()){
+                return true;
+            }
+        }
         
+        return true;
+    }
+    
+    /**
+     * Steps 1 and 2, until there's nothing left on the queue. Only the cells
+     * and groups touched by the last placements can have anything new to 
+     * tell us.
+     * @return false if we hit a contradiction
+     */
+    boolean propagate() throws Exception{
         int iteration = 0;
-        int previousCellsSolved = 0;
-        boolean solved = true;
-                
-        while (!grid.emptyCells.isEmpty()){
+        while (!grid.queue.isEmpty()){
             int numEmptyCells = grid.emptyCells.size();
             
             // Step 1.
-            solved = checkForCellsWithOnlyOnePotentialValue() && solved;
+            if (!checkQueuedCells()){
+                return false;
+            }
             
             // Step 2. 
-            solved = checkGroupsForMissingValues() && solved;
-            
-
-            // Check how many cells we solved in this round
-            int currentSolves = numEmptyCells - grid.emptyCells.size();
-            
-            System.out.println("At the end of iteration " + iteration + ", " +
-                               currentSolves + " cells have been solved");
-            
-            // Give it a couple of rounds to check over cells before trying to guess
-            if (currentSolves == 0 && previousCellsSolved == 0){
-                System.out.println("Two rounds without solves, time to start guessing");
-                solved = guessSolver() && solved;
-                
-            } else {
-                previousCellsSolved = currentSolves;
+            if (!checkQueuedGroups()){
+                return false;
             }
             
+            stats.iterations++;
+            if (LOG.isLoggable(Level.FINER)){
+                LOG.finer("At the end of iteration " + iteration + ", " +
+                          (numEmptyCells - grid.emptyCells.size()) + 
+                          " cells have been solved");
+            }
             iteration++;
         }
-        
-        long endTime = System.nanoTime();
-
-        double duration = (endTime - startTime)/1000000;  //divide by 1000000 to get milliseconds.
-        
-        System.out.println("Solved in " + duration + " milliseconds");
-        
-        return (solved && grid.emptyCells.isEmpty());
+        return true;
     }
     
     /**
      * If we get stuck but we haven't had an error thrown, make a guess. The 
      * easiest guess would be with a cell that only has two potential values. If
-     * this leads to a failure, we just try with the other. 
+     * this leads to a failure, the value can't go there, so we rule it out 
+     * here and let the caller carry on; with two values, the other is then a 
+     * single and doesn't need a guess of its own.
+     * @return whether the guess solved the grid
      */
     private boolean guessSolver() throws Exception{
-        // Find the cell with the smallest number of potential values
-        int smallestNumPotentialValues = 9;
+        // Find the cell with the smallest number of potential values; anything
+        // with one or none would still be on the queue
+        int smallestNumPotentialValues = Integer.MAX_VALUE;
         
-        // Hope we don't have an empty grid, because then every cell will be tried
-        // and it'll probably be a mess and crash from OOM
+        // A nearly empty grid can take a lot of guessing, so anyone who 
+        // can't wait for it should solve with a SolveBudget
         Cell bestCell = this.grid.getCellAt(0,0); 
-        for (Pair rowColPair : this.grid.emptyCells){
-            Cell cell = this.grid.getCellAt((int) rowColPair.getRow(), (int)rowColPair.getCol());
-            if (cell.potentialValues.size() < smallestNumPotentialValues){
-                smallestNumPotentialValues = cell.potentialValues.size();
+        CellSet empty = this.grid.emptyCells;
+        for (int i = empty.first(); i >= 0; i = empty.next(i + 1)){
+            Cell cell = this.grid.getCell(i);
+            if (cell.getCandidateCount() < smallestNumPotentialValues){
+                smallestNumPotentialValues = cell.getCandidateCount();
                 bestCell = cell;
             }
         }
         
-        // Clone the current grid to try guessing
+        // Try the lowest potential value on a clone of the current grid
+        int val = Candidates.lowest(bestCell.getCandidates());
         Grid testGrid = new Grid(this.grid);
         Cell newBestCell = testGrid.getCellAt(bestCell.row, bestCell.col);
-        
-        // Try each potential value; if it doesn't work, try the next
-        for (int val : newBestCell.potentialValues){
-            testGrid.setCellValueInternally(newBestCell, val);
-            if (testGrid.solve1()){
-                HashSet<Pair> formerlyEmptyCells = (HashSet<Pair>) this.grid.emptyCells.clone();
-                for (Pair rowColPair : formerlyEmptyCells){
-                    int row = (int) rowColPair.getRow();
-                    int col = (int) rowColPair.getCol();
-                    Cell solvedCell = testGrid.getCellAt(row, col);
-                    Cell cellToFill = this.grid.getCellAt(row, col);
-                    this.grid.setCellValueInternally(cellToFill, solvedCell.getValue());
-                }
-                return true;
+        stats.gridClones++;
+        stats.guesses++;
+        stats.reachedDepth(depth + 1);
+
+        // The clone keeps our change counts, so it can carry on from where 
+        // our techniques left off
+        MySolver guessSolver = new MySolver(testGrid, techniques, stats, depth + 1, lastRun, budget);
+        if (testGrid.setCellValueInternally(newBestCell, val) && guessSolver.run()){
+            // Filling a cell only takes it out of the set behind us
+            for (int i = empty.first(); i >= 0; i = empty.next(i + 1)){
+                this.grid.setCellValueInternally(this.grid.getCell(i), testGrid.getCell(i).getDigit());
             }
+            return true;
+        }
+        if (isSpent()){
+            // We gave up rather than finding a contradiction, so the value
+            // might be right after all
+            return false;
         }
+        stats.backtracks++;
+        this.grid.eliminateCandidates(bestCell, Candidates.bit(val));
         return false;
     }
     
+    /**
+     * Guesses are what get out of hand, so they're the search nodes we 
+     * count against the budget.
+     * @return whether to give up
+     */
+    private boolean isSpent(){
+        return budget != null && budget.isSpent(stats.guesses);
+    }
+    
+    /**
+     * Run the techniques in order until one of them rules something out.
+     * @return the index of the one that did, or -1 if none did
+     */
+    int applyTechniques() throws Exception{
+        for (int i = 0; i < techniques.size(); i++){
+            long since = lastRun[i];
+            if (since == grid.changes){
+                continue;
+            }
+            lastRun[i] = grid.changes;
+            Technique technique = techniques.get(i);
+            if (technique.apply(grid, since) > 0){
+                stats.techniqueHit(technique.getName());
+                if (LOG.isLoggable(Level.FINER)){
+                    LOG.finer("Made progress with " + technique.getName());
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+    
     /**
      * Based on other cells in the same groups, a cell may only have one possible
-     * value.
+     * value. Placing it can leave its peers with one, so keep going until 
+     * the queue runs dry.
      * @throws Exception 
      */
-    private boolean checkForCellsWithOnlyOnePotentialValue() throws Exception{
-        // Clone so we can remove values from the actual set in setCellValueInternally
-        HashSet<Pair> emptyCells = (HashSet<Pair>) grid.emptyCells.clone();
-        for (Iterator<Pair> it = emptyCells.iterator(); it.hasNext();){
-            Pair rowColPair = it.next();
-            int row = (int) rowColPair.getRow();
-            int col = (int) rowColPair.getCol();
-            Cell cell = grid.getCellAt(row, col);
+    private boolean checkQueuedCells() throws Exception{
+        for (int ind = grid.queue.pollCell(); ind >= 0; ind = grid.queue.pollCell()){
+            Cell cell = grid.getCell(ind);
+            if (cell.isSetByGame){
+                continue;
+            }
 
-            List<Integer> potentialValues = cell.potentialValues;
-            if (potentialValues.size() == 1){
-                if (grid.setCellValueInternally(cell, potentialValues.get(0))){
-                    it.remove();
-                } else {
-                    System.out.println("We've got a problem. Trying to add " + 
-                            potentialValues.get(0) + " to (" + row + "," + col +")");
+            int candidates = cell.getCandidates();
+            if (Candidates.count(candidates) == 1){
+                int value = Candidates.lowest(candidates);
+                if (!grid.setCellValueInternally(cell, value)){
+                    if (LOG.isLoggable(Level.FINE)){
+                        LOG.fine("We've got a problem. Trying to add " + 
+                                value + " to (" + cell.row + "," + cell.col +")");
+                    }
                     return false;
                 }
-            } else if (potentialValues.isEmpty()){
-                System.out.println("We've got a problem. (" + row + "," + col +")"
-                                    + " has no potential values possible");
+                stats.nakedSingles++;
+            } else if (candidates == 0){
+                if (LOG.isLoggable(Level.FINE)){
+                    LOG.fine("We've got a problem. (" + cell.row + "," + cell.col +")"
+                             + " has no potential values possible");
+                }
                 return false;
             }
         }
@@ -149,29 +330,31 @@ public class MySolver {
     
     /**
      * Groups should know which values they need and whether any of their cells
-     * can accommodate them. 
+     * can accommodate them. Only groups that lost a candidate since we last 
+     * looked can have changed their answer.
      * @return 
      */
-    private boolean checkGroupsForMissingValues() throws Exception{
+    private boolean checkQueuedGroups() throws Exception{
         HashMap<Cell, Integer> cellsToRemove = new HashMap<>();
-        for (CellGroup group : grid.gridRows){
-            cellsToRemove.putAll(group.lookForMissingValues());
-        }
-        for (CellGroup group : grid.gridCols){
-            cellsToRemove.putAll(group.lookForMissingValues());
-        }
-        for (CellGroup group : grid.gridSquares){
-            cellsToRemove.putAll(group.lookForMissingValues());
+        for (int group = grid.queue.pollGroup(); group >= 0; group = grid.queue.pollGroup()){
+            cellsToRemove.putAll(grid.getGroup(group).lookForMissingValues());
         }
         
         for (Entry<Cell, Integer> entry : cellsToRemove.entrySet()){
             Cell cell = entry.getKey();
             int value = (int) entry.getValue();
+            if (cell.isSetByGame && cell.getDigit() == value){
+                // Found by more than one group
+                continue;
+            }
             if (!grid.setCellValueInternally(cell, value)){
-                System.out.println("We've got a problem. Trying to add " + 
-                        value + " to (" + cell.row + "," + cell.col +")");
+                if (LOG.isLoggable(Level.FINE)){
+                    LOG.fine("We've got a problem. Trying to add " + 
+                             value + " to (" + cell.row + "," + cell.col +")");
+                }
                 return false;
             }
+            stats.hiddenSingles++;
         }
         return true;
     }
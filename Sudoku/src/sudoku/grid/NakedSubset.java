@@ -0,0 +1,88 @@
+package sudoku.grid;
+
+/**
+ * If n cells in a group can only hold the same n values between them, those
+ * values have to go in those cells, so no other cell in the group can have 
+ * them.
+ */
+public class NakedSubset implements Technique {
+    
+    private static final String[] NAMES = {"naked_pair", "naked_triple", "naked_quad"};
+    
+    private final int size;
+    
+    /**
+     * @param size 2 for pairs, 3 for triples, 4 for quads
+     */
+    public NakedSubset(int size){
+        assert(2 <= size && size <= 4);
+        this.size = size;
+    }
+    
+    @Override
+    public String getName(){
+        return NAMES[size - 2];
+    }
+    
+    @Override
+    public int apply(Grid grid, long since) throws Exception{
+        int eliminated = 0;
+        for (int g = 0; g < grid.topology.groupCount; g++){
+            if (!grid.hasChangedSince(g, since)){
+                continue;
+            }
+            CellGroup group = grid.getGroup(g);
+            int empty = group.getEmptyPositions();
+            
+            // Nothing left to rule out if the subset would be the whole group
+            if (Integer.bitCount(empty) <= size){
+                continue;
+            }
+            
+            int eligible = 0;
+            for (int mask = empty; mask != 0; mask &= mask - 1){
+                int ind = Integer.numberOfTrailingZeros(mask);
+                int count = group.getCell(ind).getCandidateCount();
+                if (2 <= count && count <= size){
+                    eligible |= 1 << ind;
+                }
+            }
+            if (Integer.bitCount(eligible) >= size){
+                eliminated += search(grid, group, eligible, 0, 0, 0);
+            }
+        }
+        return eliminated;
+    }
+    
+    /**
+     * Try each combination of eligible positions, dropping any whose 
+     * candidates already add up to too many values.
+     */
+    private int search(Grid grid, CellGroup group, int remaining, int chosen, 
+            int values, int depth){
+        if (depth == size){
+            if (Candidates.count(values) != size){
+                return 0;
+            }
+            int eliminated = 0;
+            for (int others = group.getEmptyPositions() & ~chosen; others != 0; others &= others - 1){
+                Cell cell = group.getCell(Integer.numberOfTrailingZeros(others));
+                if (grid.eliminateCandidates(cell, values)){
+                    eliminated++;
+                }
+            }
+            return eliminated;
+        }
+        
+        int eliminated = 0;
+        for (int rest = remaining; rest != 0; rest &= rest - 1){
+            int ind = Integer.numberOfTrailingZeros(rest);
+            int union = values | group.getCell(ind).getCandidates();
+            if (Candidates.count(union) <= size){
+                eliminated += search(grid, group, rest & (rest - 1), 
+                        chosen | (1 << ind), union, depth + 1);
+            }
+        }
+        return eliminated;
+    }
+}
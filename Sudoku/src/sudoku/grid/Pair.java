@@ -1,10 +1,18 @@
 package sudoku.grid;
 
 /**
- * Just a class to hold a row/col pair.
+ * Just a class to hold a row/col pair. There's one for each cell already
+ * made, see {@link #of(int, int)}.
  */
 public class Pair{
 
+    private static final Pair[] CELLS = new Pair[81];
+    static {
+        for (int i = 0; i < CELLS.length; i++){
+            CELLS[i] = new Pair(i/9, i%9);
+        }
+    }
+    
     private final int row;
     private final int col;
 
@@ -21,6 +29,31 @@ public class Pair{
         this.col = col;
     }
     
+    /**
+     * @param row
+     * @param col
+     * @return the shared pair for a cell of the grid
+     */
+    public static Pair of(int row, int col) {
+        return CELLS[row*9 + col];
+    }
+    
+    /**
+     * @param index row*9 + col
+     * @return the shared pair for a cell of the grid
+     */
+    public static Pair of(int index) {
+        return CELLS[index];
+    }
+    
+    /**
+     * @return row*9 + col, or -1 if it's not a cell of the grid
+     */
+    public int getIndex() {
+        boolean inGrid = 0 <= row && row < 9 && 0 <= col && col < 9;
+        return inGrid ? row*9 + col : -1;
+    }
+    
     @Override
     public boolean equals(Object obj){
         if(this == obj){
@@ -38,6 +71,6 @@ public class Pair{
     // From https://stackoverflow.com/a/24262965
     @Override
     public int hashCode(){
-        return new Integer(row).hashCode() * 31 + new Integer(col).hashCode();
+        return row*31 + col;
     }
 }
@@ -0,0 +1,193 @@
+package sudoku.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Guessing in parallel for hard puzzles. Near the top of the search tree, 
+ * each candidate for the cell with the fewest candidates becomes its own 
+ * fork/join task, so idle cores can steal sibling branches. Below the split 
+ * depth each task hands its branch to a {@link BacktrackingSolver}, which 
+ * keeps the number of tasks (and copies of the cells) bounded. Once a
+ * solution is found, everything else gives up. A budget's node limit 
+ * applies to each leaf on its own.
+ */
+public class ParallelSolver extends ArraySolver {
+    
+    public static final int DEFAULT_SPLIT_DEPTH = 4;
+    
+    // Each worker thread keeps its own sequential solver for the leaves
+    private static final ThreadLocal<BacktrackingSolver> LEAF_SOLVER = 
+            ThreadLocal.withInitial(BacktrackingSolver::new);
+    
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    
+    public ParallelSolver(){
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+    
+    /**
+     * @param pool where the guessing tasks are run
+     * @param splitDepth how many guesses deep we keep making new tasks
+     */
+    public ParallelSolver(ForkJoinPool pool, int splitDepth){
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+    
+    @Override
+    public boolean solve(int[] cells){
+        Search search = run(cells, 1);
+        int[] solution = search.solution.get();
+        if (solution == null){
+            return false;
+        }
+        System.arraycopy(solution, 0, cells, 0, 81);
+        return true;
+    }
+    
+    @Override
+    public int countSolutions(int[] cells, int limit){
+        return Math.min(run(cells, limit).solutions.get(), limit);
+    }
+    
+    private Search run(int[] cells, int limit){
+        stats.reset();
+        long start = System.nanoTime();
+        Search search = new Search(limit, budget);
+        pool.invoke(new GuessTask(search, cells.clone(), 0));
+        
+        // Only the splitting is counted; the leaves keep their own counters
+        stats.guesses = search.guesses.get();
+        stats.maxDepth = search.maxDepth.get();
+        stats.solved = search.solutions.get() > 0;
+        stats.elapsedNanos = System.nanoTime() - start;
+        return search;
+    }
+    
+    /**
+     * What's shared between all the tasks of one search.
+     */
+    private static class Search {
+        final int limit;
+        final AtomicInteger solutions = new AtomicInteger();
+        final AtomicReference<int[]> solution = new AtomicReference<>();
+        // Cancelled once we've found enough, and spent with the caller's budget
+        final SolveBudget done;
+        final AtomicInteger guesses = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        
+        Search(int limit, SolveBudget budget){
+            this.limit = limit;
+            this.done = new SolveBudget(budget);
+        }
+        
+        void found(int count, int[] cells){
+            if (count > 0){
+                solution.compareAndSet(null, cells);
+                if (solutions.addAndGet(count) >= limit){
+                    done.cancel();
+                }
+            }
+        }
+    }
+    
+    private class GuessTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final Search search;
+        private final int[] cells;
+        private final int depth;
+        
+        GuessTask(Search search, int[] cells, int depth){
+            this.search = search;
+            this.cells = cells;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.done.isSpent(0)){
+                return;
+            }
+            if (depth >= splitDepth){
+                solveLeaf();
+                return;
+            }
+            
+            // Masks of what's used, to find the cell with fewest candidates
+            int[] used = new int[27];
+            for (int i = 0; i < 81; i++){
+                if (cells[i] != 0){
+                    int bit = Candidates.bit(cells[i]);
+                    if (((used[ROW[i]] | used[9 + COL[i]] | used[18 + SQUARE[i]]) & bit) != 0){
+                        return;
+                    }
+                    used[ROW[i]] |= bit;
+                    used[9 + COL[i]] |= bit;
+                    used[18 + SQUARE[i]] |= bit;
+                }
+            }
+            
+            int bestCell = -1;
+            int bestCandidates = 0;
+            for (int i = 0; i < 81; i++){
+                if (cells[i] != 0){
+                    continue;
+                }
+                int candidates = ~(used[ROW[i]] | used[9 + COL[i]] | used[18 + SQUARE[i]])
+                        & Cell.ALL_CANDIDATES;
+                if (bestCell < 0 || Integer.bitCount(candidates) < Integer.bitCount(bestCandidates)){
+                    bestCell = i;
+                    bestCandidates = candidates;
+                    if (Integer.bitCount(candidates) <= 1){
+                        break;
+                    }
+                }
+            }
+            
+            if (bestCell < 0){
+                // Nothing left to fill
+                search.found(1, cells);
+                return;
+            }
+            
+            // A single candidate isn't worth a new task, so just carry on
+            if (Integer.bitCount(bestCandidates) == 1){
+                cells[bestCell] = Candidates.lowest(bestCandidates);
+                compute();
+                return;
+            }
+            
+            List<GuessTask> guesses = new ArrayList<>(Integer.bitCount(bestCandidates));
+            for (int mask = bestCandidates; mask != 0; mask &= mask - 1){
+                int[] guess = cells.clone();
+                guess[bestCell] = Candidates.lowest(mask);
+                guesses.add(new GuessTask(search, guess, depth + 1));
+            }
+            search.guesses.addAndGet(guesses.size());
+            search.maxDepth.accumulateAndGet(depth + 1, Math::max);
+            invokeAll(guesses);
+        }
+        
+        private void solveLeaf(){
+            BacktrackingSolver solver = LEAF_SOLVER.get();
+            solver.budget = search.done;
+            try {
+                int remaining = search.limit - search.solutions.get();
+                if (search.limit == 1){
+                    search.found(solver.solve(cells) ? 1 : 0, cells);
+                } else if (remaining > 0){
+                    search.found(solver.countSolutions(cells, remaining), cells);
+                }
+            } finally {
+                solver.budget = null;
+            }
+        }
+    }
+}
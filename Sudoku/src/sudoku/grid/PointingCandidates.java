@@ -0,0 +1,72 @@
+package sudoku.grid;
+
+/**
+ * If a value can only go in one row (or column) of a square, it has to be
+ * in that part of the row, so the rest of the row can't have it. Covers 
+ * pointing pairs and triples.
+ */
+public class PointingCandidates implements Technique {
+    
+    // Where each value can go in the group we're looking at, by value - 1
+    private final int[] byValue = new int[Topology.MAX_SIZE];
+    
+    @Override
+    public String getName(){
+        return "pointing";
+    }
+    
+    @Override
+    public int apply(Grid grid, long since) throws Exception{
+        Topology topology = grid.topology;
+        int size = topology.size;
+        int box = topology.boxSize;
+        
+        // Positions in a square's first row and first column
+        int squareRow = topology.boxRow;
+        int squareCol = topology.boxCol;
+        
+        int eliminated = 0;
+        for (int square = 0; square < size; square++){
+            if (!grid.hasChangedSince(2*size + square, since)){
+                continue;
+            }
+            CellGroup group = grid.getGroup(2*size + square);
+            int firstRow = (square/box)*box;
+            int firstCol = (square%box)*box;
+            
+            group.getPositionsOfValues(byValue);
+            for (int mask = group.getMissingValues(); mask != 0; mask &= mask - 1){
+                int value = Candidates.lowest(mask);
+                int positions = byValue[value - 1];
+                if (positions == 0){
+                    continue;
+                }
+                
+                int row = Integer.numberOfTrailingZeros(positions)/box;
+                if ((positions & ~(squareRow << (row*box))) == 0){
+                    // Rows are indexed by column, skip the square's own
+                    eliminated += eliminate(grid, grid.getGroup(firstRow + row),
+                            ~(squareRow << firstCol), value);
+                }
+                
+                int col = Integer.numberOfTrailingZeros(positions)%box;
+                if ((positions & ~(squareCol << col)) == 0){
+                    eliminated += eliminate(grid, grid.getGroup(size + firstCol + col),
+                            ~(squareRow << firstRow), value);
+                }
+            }
+        }
+        return eliminated;
+    }
+    
+    static int eliminate(Grid grid, CellGroup group, int positions, int value){
+        int eliminated = 0;
+        int bit = Candidates.bit(value);
+        for (int mask = group.getEmptyPositions() & positions; mask != 0; mask &= mask - 1){
+            if (grid.eliminateCandidates(group.getCell(Integer.numberOfTrailingZeros(mask)), bit)){
+                eliminated++;
+            }
+        }
+        return eliminated;
+    }
+}
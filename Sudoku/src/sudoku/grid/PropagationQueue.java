@@ -0,0 +1,80 @@
+package sudoku.grid;
+
+/**
+ * The work left over from placing values: cells that are down to one (or no)
+ * candidate, and groups where a cell lost a candidate and so might now have 
+ * a value with only one place to go. Placing a value only adds what it 
+ * actually changed, so the solver never has to sweep the whole grid.
+ * 
+ * Groups are numbered 0-8 for rows, 9-17 for columns and 18-26 for squares,
+ * or as in {@link Topology} for other sizes.
+ */
+final class PropagationQueue {
+    
+    // Cell indices (row*size + col) in a ring, without duplicates
+    private final int[] cells;
+    private final boolean[] queued;
+    private int head = 0;
+    private int size = 0;
+    
+    private final CellSet groups;
+    
+    PropagationQueue(Topology topology){
+        cells = new int[topology.cellCount];
+        queued = new boolean[topology.cellCount];
+        groups = new CellSet(topology.groupCount);
+    }
+    
+    void addCell(int cell){
+        if (!queued[cell]){
+            queued[cell] = true;
+            cells[(head + size)%cells.length] = cell;
+            size++;
+        }
+    }
+    
+    /**
+     * @return the next cell to look at, or -1 if there aren't any
+     */
+    int pollCell(){
+        if (size == 0){
+            return -1;
+        }
+        int cell = cells[head];
+        head = (head + 1)%cells.length;
+        size--;
+        queued[cell] = false;
+        return cell;
+    }
+    
+    void addGroup(int group){
+        groups.add(group);
+    }
+    
+    /**
+     * @return the next group to look at, or -1 if there aren't any
+     */
+    int pollGroup(){
+        int group = groups.first();
+        if (group >= 0){
+            groups.remove(group);
+        }
+        return group;
+    }
+    
+    /**
+     * Make this queue hold the same work as another.
+     * @param other 
+     */
+    void copyFrom(PropagationQueue other){
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.queued, 0, queued, 0, queued.length);
+        head = other.head;
+        size = other.size;
+        groups.copyFrom(other.groups);
+    }
+    
+    boolean isEmpty(){
+        return size == 0 && groups.isEmpty();
+    }
+}
@@ -0,0 +1,166 @@
+package sudoku.grid;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Makes random puzzles with exactly one solution. First we fill an empty grid
+ * by backtracking with the candidates tried in random order, then we take 
+ * clues away in random order, putting back any whose removal would allow a 
+ * second solution. The same seed always gives the same puzzle.
+ * 
+ * A generator keeps its solvers around between puzzles, so it's cheap to 
+ * reuse but shouldn't be shared between threads.
+ */
+public class PuzzleGenerator {
+    
+    // The fewest clues a puzzle with a unique solution can have
+    public static final int MIN_CLUES = 17;
+    
+    // How many puzzles to try for a difficulty before settling
+    static final int MAX_ATTEMPTS = 200;
+    
+    private final Random random;
+    private final BacktrackingSolver filler = new BacktrackingSolver();
+    
+    // Most checks are on nearly full grids, where plain backtracking beats
+    // dancing links since there's no covering to do up front
+    private final BacktrackingSolver checker = new BacktrackingSolver();
+    private final int[] order = new int[81];
+    private final DifficultyRater rater = new DifficultyRater();
+    
+    public PuzzleGenerator(long seed){
+        this.random = new Random(seed);
+        filler.random = random;
+    }
+    
+    /**
+     * Start over as if this generator was made with a different seed.
+     * @param seed 
+     */
+    public void setSeed(long seed){
+        random.setSeed(seed);
+    }
+    
+    /**
+     * @return a random, completely filled grid as 81 values in row-major order
+     */
+    public int[] generateSolution(){
+        int[] cells = new int[81];
+        filler.solve(cells);
+        return cells;
+    }
+    
+    /**
+     * Make a puzzle with a unique solution and the given number of clues. Not
+     * every solution can be brought down to a low number of clues, so the 
+     * puzzle may end up with more than asked for.
+     * @param clues 
+     * @return 81 values in row-major order, 0 for empty
+     */
+    public int[] generate(int clues){
+        int[] puzzle = generateSolution();
+        removeClues(puzzle, clues);
+        return puzzle;
+    }
+    
+    /**
+     * Make a puzzle with a unique solution that rates as the given difficulty,
+     * starting from the difficulty's number of clues. Puzzles are thrown 
+     * away until one fits; if none do after a while, the last one is used.
+     * @param difficulty
+     * @return 81 values in row-major order, 0 for empty
+     * @throws Exception 
+     */
+    public int[] generate(Difficulty difficulty) throws Exception{
+        int[] puzzle = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++){
+            puzzle = generate(difficulty.getClues());
+            if (rater.rate(puzzle, difficulty.getMaxScore()).getDifficulty() == difficulty){
+                break;
+            }
+        }
+        return puzzle;
+    }
+    
+    /**
+     * Take away clues in random order while the solution stays unique.
+     * @param puzzle a puzzle with a unique solution, changed in place
+     * @param clues stop once we're down to this many
+     * @return the number of clues left
+     */
+    int removeClues(int[] puzzle, int clues){
+        int numClues = 0;
+        for (int i = 0; i < 81; i++){
+            order[i] = i;
+            if (puzzle[i] != 0){
+                numClues++;
+            }
+        }
+        
+        // Shuffle the order we try the cells in
+        for (int i = 80; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        
+        for (int i = 0; i < 81 && numClues > clues; i++){
+            int cell = order[i];
+            int value = puzzle[cell];
+            if (value == 0){
+                continue;
+            }
+            puzzle[cell] = 0;
+            if (checker.countSolutions(puzzle, 2) == 1){
+                numClues--;
+            } else {
+                puzzle[cell] = value;
+            }
+        }
+        return numClues;
+    }
+    
+    /**
+     * Make a batch of puzzles across several threads. Puzzle i always comes 
+     * from the same seed, so the batch is the same however many threads do 
+     * the work.
+     * @param seed
+     * @param count
+     * @param clues
+     * @param threads
+     * @return the puzzles, each as 81 values in row-major order
+     * @throws InterruptedException
+     * @throws ExecutionException 
+     */
+    public static int[][] generate(long seed, int count, int clues, int threads) 
+            throws InterruptedException, ExecutionException{
+        int[][] puzzles = new int[count][];
+        ThreadLocal<PuzzleGenerator> generators = 
+                ThreadLocal.withInitial(() -> new PuzzleGenerator(seed));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+                PuzzleGenerator generator = generators.get();
+                generator.setSeed(seedFor(seed, i));
+                puzzles[i] = generator.generate(clues);
+            })).get();
+        } finally {
+            pool.shutdown();
+        }
+        return puzzles;
+    }
+    
+    /**
+     * Spread out the seeds for a batch so neighbouring puzzles aren't related.
+     * @param seed
+     * @param index
+     * @return 
+     */
+    static long seedFor(long seed, int index){
+        return seed + index*0x9E3779B97F4A7C15L;
+    }
+}
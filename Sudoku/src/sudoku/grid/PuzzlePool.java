@@ -0,0 +1,217 @@
+package sudoku.grid;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puzzles made ahead of time so starting a new game doesn't have to wait for
+ * the generator. There's a bounded pool for each difficulty, filled by
+ * low-priority background threads when the pool starts and topped up 
+ * whenever a pool falls below half full. If a pool is empty when a puzzle is
+ * asked for (a miss), one's made on a background thread as well, so nobody 
+ * taking a puzzle has to wait on the generator themselves. Pools are 
+ * refilled a puzzle at a time, so a miss only waits for the puzzles already
+ * being made.
+ */
+public class PuzzlePool {
+    
+    public static final int DEFAULT_CAPACITY = 16;
+    public static final int DEFAULT_WORKERS = 1;
+    
+    private final int capacity;
+    private final int lowWatermark;
+    private final Map<Difficulty, BlockingQueue<int[]>> pools = new EnumMap<>(Difficulty.class);
+    private final Map<Difficulty, AtomicBoolean> refilling = new EnumMap<>(Difficulty.class);
+    private final ExecutorService workers;
+    
+    private final Random seeds = new Random();
+    private final ThreadLocal<PuzzleGenerator> generators;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public PuzzlePool(){
+        this(DEFAULT_CAPACITY, DEFAULT_WORKERS);
+    }
+    
+    /**
+     * @param capacity the most puzzles kept for each difficulty
+     * @param numWorkers the number of background threads making puzzles
+     */
+    public PuzzlePool(int capacity, int numWorkers){
+        this.capacity = capacity;
+        this.lowWatermark = Math.max(1, capacity/2);
+        for (Difficulty difficulty : Difficulty.values()){
+            pools.put(difficulty, new ArrayBlockingQueue<>(capacity));
+            refilling.put(difficulty, new AtomicBoolean());
+        }
+        
+        generators = ThreadLocal.withInitial(() -> new PuzzleGenerator(seeds.nextLong()));
+        workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start filling every pool in the background.
+     */
+    public void start(){
+        for (Difficulty difficulty : Difficulty.values()){
+            refill(difficulty);
+        }
+    }
+    
+    public void shutdown(){
+        workers.shutdownNow();
+    }
+    
+    /**
+     * Take a puzzle, straight from the pool if it has one, otherwise made in
+     * the background.
+     * @param difficulty
+     * @return 81 values in row-major order, 0 for empty; fails if the pool's
+     * been shut down and had to make one
+     */
+    public CompletableFuture<int[]> take(Difficulty difficulty){
+        BlockingQueue<int[]> pool = pools.get(difficulty);
+        int[] puzzle = pool.poll();
+        CompletableFuture<int[]> result;
+        if (puzzle != null){
+            hits.incrementAndGet();
+            result = CompletableFuture.completedFuture(puzzle);
+        } else {
+            misses.incrementAndGet();
+            result = new CompletableFuture<>();
+            try {
+                CompletableFuture<int[]> future = result;
+                workers.execute(() -> {
+                    try {
+                        future.complete(generate(difficulty));
+                    } catch (RuntimeException ex) {
+                        future.completeExceptionally(ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+        
+        if (pool.size() < lowWatermark){
+            refill(difficulty);
+        }
+        return result;
+    }
+    
+    /**
+     * Take a puzzle as a grid ready to play.
+     * @param difficulty
+     * @return the grid, once there's a puzzle for it
+     */
+    public CompletableFuture<Grid> takeGrid(Difficulty difficulty){
+        return take(difficulty).thenApply(values -> {
+            try {
+                return Grid.of(values);
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+    
+    /**
+     * Queue up a background job to fill the pool, unless one's already going.
+     * @param difficulty 
+     */
+    private void refill(Difficulty difficulty){
+        AtomicBoolean running = refilling.get(difficulty);
+        if (!running.compareAndSet(false, true)){
+            return;
+        }
+        if (!queueRefill(difficulty)){
+            running.set(false);
+        }
+    }
+    
+    /**
+     * @return whether the next step of the refill was queued
+     */
+    private boolean queueRefill(Difficulty difficulty){
+        try {
+            workers.execute(() -> refillStep(difficulty));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            // Shut down
+            return false;
+        }
+    }
+    
+    /**
+     * Make one puzzle for the pool, then queue up the next behind anything
+     * else that's waiting (like a miss) until the pool's full.
+     * @param difficulty 
+     */
+    private void refillStep(Difficulty difficulty){
+        BlockingQueue<int[]> pool = pools.get(difficulty);
+        boolean more = false;
+        try {
+            if (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()){
+                pool.offer(generate(difficulty));
+            }
+            more = pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()
+                    && queueRefill(difficulty);
+        } finally {
+            if (!more){
+                refilling.get(difficulty).set(false);
+                
+                // Anything taken after we last looked found us still running 
+                // and left it to us
+                if (pool.size() < lowWatermark && !Thread.currentThread().isInterrupted()){
+                    refill(difficulty);
+                }
+            }
+        }
+    }
+    
+    private int[] generate(Difficulty difficulty){
+        try {
+            return generators.get().generate(difficulty);
+        } catch (Exception ex){
+            // Rating only fails on a broken grid, which we never generate
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    public int size(Difficulty difficulty){
+        return pools.get(difficulty).size();
+    }
+    
+    public int getCapacity(){
+        return capacity;
+    }
+    
+    /**
+     * @return how many puzzles were taken straight from a pool
+     */
+    public long getHits(){
+        return hits.get();
+    }
+    
+    /**
+     * @return how many puzzles had to be made on the spot
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+}
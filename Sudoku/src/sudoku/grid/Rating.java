@@ -0,0 +1,61 @@
+package sudoku.grid;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * How hard a puzzle is for a person, from {@link DifficultyRater}.
+ */
+public final class Rating {
+    
+    private final double score;
+    private final String hardest;
+    private final Map<String, Long> uses;
+    private final boolean complete;
+    
+    Rating(double score, String hardest, Map<String, Long> uses, boolean complete){
+        this.score = score;
+        this.hardest = hardest;
+        this.uses = Collections.unmodifiableMap(uses);
+        this.complete = complete;
+    }
+    
+    /**
+     * @return the weight of the hardest technique needed
+     */
+    public double getScore(){
+        return score;
+    }
+    
+    /**
+     * @return the name of the hardest technique needed, "single" if singles
+     * were enough, or "guess" if nothing we have was
+     */
+    public String getHardest(){
+        return hardest;
+    }
+    
+    /**
+     * @return how many times each technique was used, singles included
+     */
+    public Map<String, Long> getUses(){
+        return uses;
+    }
+    
+    /**
+     * @return false if rating stopped early because the score got past
+     * the limit, so the score is only a lower bound
+     */
+    public boolean isComplete(){
+        return complete;
+    }
+    
+    public Difficulty getDifficulty(){
+        return Difficulty.forScore(score);
+    }
+    
+    @Override
+    public String toString(){
+        return String.format("%.1f %s (%s)", score, getDifficulty(), hardest);
+    }
+}
@@ -0,0 +1,104 @@
+package sudoku.grid;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Solutions of puzzles we've already solved, keyed by their {@link Canonical}
+ * form so the same puzzle with its digits or lines shuffled around is a hit
+ * too. Holds a fixed number of solutions, dropping the least recently used.
+ * Safe to share between threads.
+ */
+public class SolutionCache {
+    
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    private final int capacity;
+    private final LinkedHashMap<Canonical.Key, long[]> solutions;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public SolutionCache(){
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public SolutionCache(int capacity){
+        this.capacity = capacity;
+        this.solutions = new LinkedHashMap<Canonical.Key, long[]>(capacity*4/3 + 1, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Canonical.Key, long[]> eldest){
+                if (size() > SolutionCache.this.capacity){
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Look up a puzzle's solution.
+     * @param canonical the puzzle's canonical form
+     * @param solution filled with the solution, laid out like the original 
+     * puzzle, if we have it
+     * @return whether we had it
+     */
+    public synchronized boolean get(Canonical canonical, int[] solution){
+        long[] packed = solutions.get(canonical.getKey());
+        if (packed == null){
+            misses++;
+            return false;
+        }
+        hits++;
+        int[] values = new int[81];
+        Canonical.unpack(packed, values);
+        canonical.fromCanonical(values, solution);
+        return true;
+    }
+    
+    /**
+     * @param canonical the puzzle's canonical form
+     * @param solution laid out like the original puzzle
+     */
+    public synchronized void put(Canonical canonical, int[] solution){
+        int[] values = new int[81];
+        canonical.toCanonical(solution, values);
+        solutions.put(canonical.getKey(), Canonical.pack(values));
+    }
+    
+    public synchronized int size(){
+        return solutions.size();
+    }
+    
+    public int getCapacity(){
+        return capacity;
+    }
+    
+    public synchronized long getHits(){
+        return hits;
+    }
+    
+    public synchronized long getMisses(){
+        return misses;
+    }
+    
+    public synchronized long getEvictions(){
+        return evictions;
+    }
+    
+    /**
+     * @return the fraction of lookups that were hits, 0 if there weren't any
+     */
+    public synchronized double getHitRate(){
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits/lookups;
+    }
+    
+    @Override
+    public synchronized String toString(){
+        return String.format("%d/%d solutions, %d hits, %d misses, %d evictions",
+                solutions.size(), capacity, hits, misses, evictions);
+    }
+}
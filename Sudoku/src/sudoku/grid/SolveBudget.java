@@ -0,0 +1,102 @@
+package sudoku.grid;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on a single solve: it can be cancelled from another thread, and
+ * it can have a deadline and a maximum number of search nodes. Solvers check
+ * it every so often while searching and give up once it's spent, so a 
+ * cancel takes effect within a few hundred nodes.
+ * 
+ * The deadline starts counting when the budget is made, so make a new one
+ * for each solve.
+ */
+public final class SolveBudget {
+    
+    // How many search nodes solvers get through between checks
+    static final int CHECK_INTERVAL = 256;
+    
+    private final SolveBudget parent;
+    private final long deadline;
+    private final long maxNodes;
+    private volatile boolean cancelled;
+    private volatile SolveStatus spent;
+    
+    /**
+     * A budget without limits, that can only be cancelled.
+     */
+    public SolveBudget(){
+        this(0, TimeUnit.MILLISECONDS, 0);
+    }
+    
+    /**
+     * @param timeout how long the solve can take, or 0 for no limit
+     * @param unit
+     * @param maxNodes how many search nodes it can visit, or 0 for no limit
+     */
+    public SolveBudget(long timeout, TimeUnit unit, long maxNodes){
+        this.parent = null;
+        this.deadline = (timeout > 0) ? System.nanoTime() + unit.toNanos(timeout) : 0;
+        this.maxNodes = maxNodes;
+    }
+    
+    /**
+     * A budget that's spent whenever the parent is, but can also be cancelled
+     * on its own, for work that's part of a bigger solve.
+     * @param parent or null for none
+     */
+    SolveBudget(SolveBudget parent){
+        this.parent = parent;
+        this.deadline = 0;
+        this.maxNodes = 0;
+    }
+    
+    /**
+     * Stop the solve as soon as it next checks.
+     */
+    public void cancel(){
+        cancelled = true;
+    }
+    
+    public boolean isCancelled(){
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+    
+    /**
+     * Check whether there's anything left to spend, remembering why not.
+     * @param nodes the number of search nodes visited so far
+     * @return true once the solve should give up
+     */
+    boolean isSpent(long nodes){
+        if (spent != null){
+            return true;
+        }
+        if (cancelled){
+            spent = SolveStatus.CANCELLED;
+        } else if (parent != null && parent.isSpent(nodes)){
+            spent = parent.spent;
+        } else if ((maxNodes > 0 && nodes > maxNodes) || 
+                (deadline != 0 && System.nanoTime() - deadline > 0)){
+            spent = SolveStatus.BUDGET_EXCEEDED;
+        }
+        return spent != null;
+    }
+    
+    /**
+     * @return why the budget ran out, or null if it hasn't
+     */
+    public SolveStatus getSpentStatus(){
+        return spent;
+    }
+    
+    /**
+     * @param solved whether the solver found a solution
+     * @return how a solve that used this budget ended
+     */
+    SolveStatus statusFor(boolean solved){
+        if (solved){
+            return SolveStatus.SOLVED;
+        }
+        return (spent == null) ? SolveStatus.UNSOLVABLE : spent;
+    }
+}
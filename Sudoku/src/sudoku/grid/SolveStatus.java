@@ -0,0 +1,14 @@
+package sudoku.grid;
+
+/**
+ * How a solve with a {@link SolveBudget} ended.
+ */
+public enum SolveStatus {
+    SOLVED,
+    // There's no solution
+    UNSOLVABLE,
+    // Ran out of time or search nodes before finding out
+    BUDGET_EXCEEDED,
+    // Told to stop before finding out
+    CANCELLED
+}
@@ -0,0 +1,32 @@
+package sudoku.grid;
+
+/**
+ * Common entry point for the different solving engines, so callers can pick
+ * one without caring about how it works.
+ */
+public interface Solver {
+    
+    /**
+     * Solve the grid in place, filling its empty cells.
+     * @param grid
+     * @return whether the grid was solved
+     * @throws Exception 
+     */
+    boolean solve(Grid grid) throws Exception;
+    
+    /**
+     * Solve the grid in place, giving up once the budget is spent. Values 
+     * the solver was sure of may already be filled in by then.
+     * @param grid
+     * @param budget
+     * @return SOLVED, UNSOLVABLE, or why the budget ran out
+     * @throws Exception 
+     */
+    SolveStatus solve(Grid grid, SolveBudget budget) throws Exception;
+    
+    /**
+     * @return the counters from the last solve; they're overwritten by the
+     * next one, so take a snapshot to keep them
+     */
+    SolverStats getStats();
+}
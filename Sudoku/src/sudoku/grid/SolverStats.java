@@ -0,0 +1,124 @@
+package sudoku.grid;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters for a single solve. Solvers keep one of these and reset it at the
+ * start of each solve, so counting doesn't allocate anything; take a 
+ * {@link #snapshot()} to keep the numbers around or export them.
+ */
+public class SolverStats {
+    
+    boolean solved;
+    long iterations;
+    long nakedSingles;
+    long hiddenSingles;
+    long guesses;
+    long backtracks;
+    long gridClones;
+    int maxDepth;
+    long elapsedNanos;
+    
+    // How many times each solving technique got somewhere, by name
+    private final Map<String, Long> techniqueHits = new LinkedHashMap<>();
+    
+    void reset(){
+        solved = false;
+        iterations = 0;
+        nakedSingles = 0;
+        hiddenSingles = 0;
+        guesses = 0;
+        backtracks = 0;
+        gridClones = 0;
+        maxDepth = 0;
+        elapsedNanos = 0;
+        techniqueHits.clear();
+    }
+    
+    void reachedDepth(int depth){
+        if (depth > maxDepth){
+            maxDepth = depth;
+        }
+    }
+    
+    void techniqueHit(String name){
+        techniqueHits.merge(name, 1L, Long::sum);
+    }
+    
+    public boolean isSolved(){
+        return solved;
+    }
+    
+    /**
+     * @return rounds of the solving loop, or search nodes for the search-based
+     * solvers
+     */
+    public long getIterations(){
+        return iterations;
+    }
+    
+    public long getNakedSingles(){
+        return nakedSingles;
+    }
+    
+    public long getHiddenSingles(){
+        return hiddenSingles;
+    }
+    
+    public long getGuesses(){
+        return guesses;
+    }
+    
+    public long getBacktracks(){
+        return backtracks;
+    }
+    
+    public long getGridClones(){
+        return gridClones;
+    }
+    
+    public int getMaxDepth(){
+        return maxDepth;
+    }
+    
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+    
+    /**
+     * @return how many times each {@link Technique} ruled something out, in
+     * the order they were first used
+     */
+    public Map<String, Long> getTechniqueHits(){
+        return Collections.unmodifiableMap(techniqueHits);
+    }
+    
+    /**
+     * Copy the counters into a map of metric names to values, in a fixed 
+     * order.
+     * @return 
+     */
+    public Map<String, Long> snapshot(){
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("solver.solved", solved ? 1L : 0L);
+        metrics.put("solver.iterations", iterations);
+        metrics.put("solver.naked_singles", nakedSingles);
+        metrics.put("solver.hidden_singles", hiddenSingles);
+        metrics.put("solver.guesses", guesses);
+        metrics.put("solver.backtracks", backtracks);
+        metrics.put("solver.grid_clones", gridClones);
+        metrics.put("solver.max_depth", (long) maxDepth);
+        metrics.put("solver.elapsed_nanos", elapsedNanos);
+        for (Map.Entry<String, Long> entry : techniqueHits.entrySet()){
+            metrics.put("solver.technique." + entry.getKey(), entry.getValue());
+        }
+        return metrics;
+    }
+    
+    @Override
+    public String toString(){
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,33 @@
+package sudoku.grid;
+
+/**
+ * The solving engines we have available.
+ */
+public enum SolverType {
+    // Human-style solving with singles, then guessing on cloned grids
+    MY_SOLVER,
+    // Depth-first search on a single mutable state, undoing on failure
+    BACKTRACKING,
+    // Exact cover search with dancing links, best for the hardest puzzles
+    DANCING_LINKS,
+    // Backtracking with the top of the guess tree split across threads
+    PARALLEL;
+    
+    /**
+     * Make a new instance of this kind of solver. Solvers hold on to their
+     * working state, so don't share one instance between threads.
+     * @return 
+     */
+    public Solver newSolver(){
+        switch (this){
+            case BACKTRACKING:
+                return new BacktrackingSolver();
+            case DANCING_LINKS:
+                return new DancingLinksSolver();
+            case PARALLEL:
+                return new ParallelSolver();
+            default:
+                return new MySolver();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package sudoku.grid;
+
+/**
+ * A way of ruling out candidates the way a person would on paper, for when
+ * naked and hidden singles run dry. Techniques only remove candidates, using
+ * {@link Grid#eliminateCandidates(Cell, int)}; placing the singles that fall 
+ * out of that is left to the solver.
+ * 
+ * Groups are numbered as in {@link Grid#getGroup(int)}.
+ */
+public interface Technique {
+    
+    /**
+     * @return a short name for the stats, like "naked_pair"
+     */
+    String getName();
+    
+    /**
+     * Make one pass over the grid. A technique that ran before only needs to
+     * look again where something has changed since; see 
+     * {@link Grid#hasChangedSince(int, long)}.
+     * @param grid
+     * @param since the grid's change count when this last ran, -1 if it 
+     * hasn't
+     * @return the number of cells that lost a candidate
+     * @throws Exception 
+     */
+    int apply(Grid grid, long since) throws Exception;
+}
@@ -0,0 +1,133 @@
+package sudoku.grid;
+
+/**
+ * The shape of a grid made of boxSize x boxSize squares: 9x9 for 3, 16x16
+ * for 4, 25x25 for 5. Where every cell sits is worked out once, so grids and
+ * solvers of any size can look it up rather than dividing. Values go from 1
+ * to size, so a cell's candidates always fit in an int mask.
+ *
+ * Cells are numbered row*size + col. Groups are numbered 0 to size-1 for
+ * rows, then the same again for columns and then squares.
+ */
+public final class Topology {
+
+    public static final int MIN_BOX_SIZE = 2;
+    public static final int MAX_BOX_SIZE = 5;
+    public static final int MAX_SIZE = MAX_BOX_SIZE*MAX_BOX_SIZE;
+
+    private static final Topology[] SHAPES = new Topology[MAX_BOX_SIZE + 1];
+    static {
+        for (int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++){
+            SHAPES[boxSize] = new Topology(boxSize);
+        }
+    }
+
+    // The usual 9x9
+    public static final Topology STANDARD = SHAPES[3];
+
+    public final int boxSize;
+    public final int size;
+    public final int cellCount;
+    public final int groupCount;
+
+    // Every value, bit (v-1) for value v
+    public final int allValues;
+
+    // Positions in a square's first row, and in its first column, numbering
+    // positions in a square row by row
+    final int boxRow;
+    final int boxCol;
+
+    // Row/col/square of each cell, and where it is within its square
+    final int[] row;
+    final int[] col;
+    final int[] square;
+    final int[] squarePosition;
+
+    private Topology(int boxSize){
+        this.boxSize = boxSize;
+        this.size = boxSize*boxSize;
+        this.cellCount = size*size;
+        this.groupCount = 3*size;
+        this.allValues = (1 << size) - 1;
+
+        this.boxRow = (1 << boxSize) - 1;
+        int firstCol = 0;
+        for (int i = 0; i < boxSize; i++){
+            firstCol |= 1 << (i*boxSize);
+        }
+        this.boxCol = firstCol;
+
+        row = new int[cellCount];
+        col = new int[cellCount];
+        square = new int[cellCount];
+        squarePosition = new int[cellCount];
+        for (int i = 0; i < cellCount; i++){
+            row[i] = i/size;
+            col[i] = i%size;
+            square[i] = (row[i]/boxSize)*boxSize + col[i]/boxSize;
+            squarePosition[i] = (row[i]%boxSize)*boxSize + col[i]%boxSize;
+        }
+    }
+
+    /**
+     * @param boxSize the width of a square, from 2 to 5
+     * @return the shared topology for that size
+     */
+    public static Topology of(int boxSize){
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE){
+            throw new IllegalArgumentException("No grids with squares of " + boxSize);
+        }
+        return SHAPES[boxSize];
+    }
+
+    /**
+     * @param size the width of the grid, like 9 or 16
+     * @return the shared topology for that size
+     */
+    public static Topology forSize(int size){
+        for (int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++){
+            if (boxSize*boxSize == size){
+                return SHAPES[boxSize];
+            }
+        }
+        throw new IllegalArgumentException("No grids of size " + size);
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return row*size + col, or -1 if it's not a cell of the grid
+     */
+    public int indexOf(int row, int col){
+        boolean inGrid = 0 <= row && row < size && 0 <= col && col < size;
+        return inGrid ? row*size + col : -1;
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return the square the cell is in, numbered row by row
+     */
+    public int getSquare(int row, int col){
+        return (row/boxSize)*boxSize + col/boxSize;
+    }
+
+    /**
+     * @param row
+     * @param col
+     * @return where the cell is within its square, numbered row by row
+     */
+    public int getSquarePosition(int row, int col){
+        return (row%boxSize)*boxSize + col%boxSize;
+    }
+
+    public boolean isValue(int value){
+        return 0 < value && value <= size;
+    }
+
+    @Override
+    public String toString(){
+        return size + "x" + size;
+    }
+}
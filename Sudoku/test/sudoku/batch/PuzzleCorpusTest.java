@@ -0,0 +1,143 @@
+package sudoku.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import sudoku.grid.Grid;
+
+/**
+ *
+ * @author xoab
+ */
+public class PuzzleCorpusTest {
+
+    static final String HARD =
+            "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+    static final String EASY =
+            "..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..";
+    static final String TEXT = HARD + "\n\n" + EASY + "\n" + HARD.replace('4', '0') + "\n";
+
+    Path file;
+
+    public PuzzleCorpusTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("sudoku", ".corpus");
+        try (OutputStream out = Files.newOutputStream(file)){
+            assertEquals(3, PuzzleCorpus.convert(new StringReader(TEXT), out));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    /**
+     * Test of get, puzzles should come back by index as they were written.
+     */
+    @Test
+    public void testGet() throws Exception {
+        System.out.println("get");
+        assertEquals(PuzzleCorpus.HEADER_SIZE + 3*PuzzleCorpus.RECORD_SIZE, Files.size(file));
+        assertTrue(PuzzleCorpus.isCorpus(file));
+
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        try (PuzzleCorpus instance = PuzzleCorpus.open(file)){
+            assertEquals(3, instance.size());
+            assertTrue(instance.get(1, cells));
+            assertEquals(EASY, PuzzleFormat.format(cells));
+            assertTrue(instance.get(0, cells));
+            assertEquals(HARD, PuzzleFormat.format(cells));
+            assertTrue(instance.get(2, cells));
+            assertEquals(HARD.replace('4', '.'), PuzzleFormat.format(cells));
+
+            Grid grid = instance.getGrid(0);
+            assertEquals(4, (int) grid.getValueAt(0, 0));
+            assertTrue(grid.getCellAt(0, 0).isSetInternally());
+            assertNull(grid.getValueAt(0, 1));
+
+            try {
+                instance.get(3, cells);
+                fail("Index past the end should be refused");
+            } catch (IndexOutOfBoundsException ex) {
+            }
+        }
+    }
+
+    /**
+     * Test of forEach over part of the corpus.
+     */
+    @Test
+    public void testForEach() throws Exception {
+        System.out.println("forEach");
+        StringBuilder out = new StringBuilder();
+        try (PuzzleCorpus instance = PuzzleCorpus.open(file)){
+            instance.forEach(1, 3, (index, cells, valid) -> {
+                assertTrue(valid);
+                out.append(index).append(PuzzleFormat.format(cells));
+            });
+        }
+        assertEquals("1" + EASY + "2" + HARD.replace('4', '.'), out.toString());
+    }
+
+    /**
+     * Text files with a bad line, and files that aren't a corpus, are
+     * refused.
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        System.out.println("invalid");
+        try {
+            PuzzleCorpus.convert(new StringReader(HARD + "\nnot a puzzle\n"), new ByteArrayOutputStream());
+            fail("A bad line should be refused");
+        } catch (IOException ex) {
+        }
+
+        Files.write(file, (HARD + "\n").getBytes("US-ASCII"));
+        assertFalse(PuzzleCorpus.isCorpus(file));
+        try {
+            PuzzleCorpus.open(file).close();
+            fail("A text file should be refused");
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Solving from the corpus should give the same output as from text.
+     */
+    @Test
+    public void testBatchSolver() throws Exception {
+        System.out.println("batchSolver");
+        BatchSolver batch = new BatchSolver(2, 2);
+        StringWriter expected = new StringWriter();
+        assertEquals(3, batch.run(new StringReader(TEXT), expected));
+
+        StringWriter result = new StringWriter();
+        try (PuzzleCorpus corpus = PuzzleCorpus.open(file)){
+            assertEquals(3, batch.run(corpus, 0, corpus.size(), result));
+        }
+        assertEquals(expected.toString(), result.toString());
+        assertEquals(3, expected.toString().split("\n").length);
+    }
+}
@@ -0,0 +1,95 @@
+package sudoku.display;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import sudoku.batch.PuzzleFormat;
+import sudoku.grid.Grid;
+
+/**
+ *
+ * @author xoab
+ */
+public class PencilMarksTest {
+
+    public PencilMarksTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static Grid toGrid(String puzzle) throws Exception {
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        assertTrue(PuzzleFormat.parse(puzzle, cells));
+        return Grid.of(cells);
+    }
+
+    /**
+     * Candidates of a new grid are whatever isn't in the cell's groups.
+     */
+    @Test
+    public void testNew() throws Exception {
+        System.out.println("new");
+        Grid grid = toGrid(SolverServiceTest.EASY);
+        PencilMarks instance = new PencilMarks(grid);
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                int expected = 0;
+                if (grid.getDigitAt(row, col) == 0){
+                    for (int value = 1; value <= 9; value++){
+                        if (grid.checkValueValidInGrid(row, col, value)){
+                            expected |= 1 << (value - 1);
+                        }
+                    }
+                }
+                assertEquals(expected, instance.getCandidates(row, col));
+            }
+        }
+    }
+
+    /**
+     * Setting and clearing cells one at a time ends up where working it all
+     * out again would, even with values that clash.
+     */
+    @Test
+    public void testSet() throws Exception {
+        System.out.println("set");
+        Grid grid = toGrid(SolverServiceTest.EASY);
+        PencilMarks instance = new PencilMarks(grid);
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++){
+            int row = random.nextInt(9);
+            int col = random.nextInt(9);
+            if (grid.getCellAt(row, col).isSetInternally()){
+                continue;
+            }
+            int value = random.nextInt(10);
+            grid.getCellAt(row, col).setDigit(value);
+            instance.set(row, col, value);
+        }
+
+        PencilMarks fresh = new PencilMarks(grid);
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                assertEquals(fresh.getCandidates(row, col), instance.getCandidates(row, col));
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package sudoku.display;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import sudoku.batch.PuzzleFormat;
+import sudoku.grid.Grid;
+import sudoku.grid.SolveBudget;
+import sudoku.grid.SolveStatus;
+
+/**
+ *
+ * @author xoab
+ */
+public class SolverServiceTest {
+
+    static final String EASY =
+            "..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..";
+    static final String SLOW =
+            ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...";
+
+    // Tasks handed to the service, run when the test says so
+    List<Runnable> tasks;
+
+    public SolverServiceTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static Grid toGrid(String puzzle) throws Exception {
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        assertTrue(PuzzleFormat.parse(puzzle, cells));
+        return Grid.of(cells);
+    }
+
+    // Run something on the event thread and wait for it
+    private static <T> T onEventThread(Callable<T> call) throws Exception {
+        List<T> result = new ArrayList<>();
+        List<Exception> thrown = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.add(call.call());
+            } catch (Exception ex) {
+                thrown.add(ex);
+            }
+        });
+        if (!thrown.isEmpty()){
+            throw thrown.get(0);
+        }
+        return result.get(0);
+    }
+
+    /**
+     * Asking twice for the same grid runs one solve, and the grid's filled in
+     * on the event thread.
+     */
+    @Test
+    public void testSolve() throws Exception {
+        System.out.println("solve");
+        SolverService instance = new SolverService(tasks::add);
+        Grid grid = toGrid(EASY);
+        List<Boolean> onEventThread = new ArrayList<>();
+        grid.addPropertyChangeListener(pce -> onEventThread.add(SwingUtilities.isEventDispatchThread()));
+
+        CompletableFuture<SolveStatus> first = onEventThread(() -> instance.solve(grid));
+        CompletableFuture<SolveStatus> second = onEventThread(() -> instance.solve(grid));
+        assertSame(first, second);
+        assertEquals(1, tasks.size());
+        assertTrue(onEventThread(() -> instance.isSolving(grid)));
+
+        tasks.get(0).run();
+        assertEquals(SolveStatus.SOLVED, first.get(5, TimeUnit.SECONDS));
+        assertTrue(grid.getEmptyCells().isEmpty());
+        assertFalse(onEventThread.isEmpty());
+        assertFalse(onEventThread.contains(false));
+        assertFalse(onEventThread(() -> instance.isSolving(grid)));
+    }
+
+    /**
+     * A solve cancelled before it starts leaves the grid alone.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("cancel");
+        SolverService instance = new SolverService(tasks::add);
+        Grid grid = toGrid(SLOW);
+        CompletableFuture<SolveStatus> result = onEventThread(() -> {
+            CompletableFuture<SolveStatus> future = instance.solve(grid);
+            instance.cancel(grid);
+            return future;
+        });
+
+        tasks.get(0).run();
+        assertEquals(SolveStatus.CANCELLED, result.get(5, TimeUnit.SECONDS));
+        assertEquals(64, grid.getEmptyCells().size());
+    }
+
+    /**
+     * Working out the solution leaves the grid as it was.
+     */
+    @Test
+    public void testSolution() throws Exception {
+        System.out.println("solution");
+        SolverService instance = new SolverService(tasks::add);
+        Grid grid = toGrid(EASY);
+        int empty = grid.getEmptyCells().size();
+        CompletableFuture<byte[]> result = onEventThread(() -> instance.solution(grid, new SolveBudget()));
+        assertFalse(result.isDone());
+
+        tasks.get(0).run();
+        byte[] solution = result.get(5, TimeUnit.SECONDS);
+        assertEquals(81, solution.length);
+        assertEquals(empty, grid.getEmptyCells().size());
+        Grid solved = toGrid(EASY);
+        assertTrue(solved.solve1());
+        for (int i = 0; i < 81; i++){
+            assertEquals(solved.getDigitAt(i/9, i%9), solution[i]);
+        }
+
+        // A cancelled one fails
+        SolveBudget budget = new SolveBudget();
+        result = onEventThread(() -> instance.solution(toGrid(SLOW), budget));
+        budget.cancel();
+        tasks.get(1).run();
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Cancelled before it could solve anything");
+        } catch (ExecutionException ex) {
+        }
+    }
+
+    /**
+     * Counting solutions stops at the limit.
+     */
+    @Test
+    public void testCountSolutions() throws Exception {
+        System.out.println("countSolutions");
+        SolverService instance = new SolverService(tasks::add);
+        CompletableFuture<Integer> unique = onEventThread(() -> instance.countSolutions(toGrid(EASY), 2));
+        CompletableFuture<Integer> empty = onEventThread(() -> instance.countSolutions(new Grid(), 2));
+        assertEquals(2, tasks.size());
+        tasks.forEach(Runnable::run);
+        assertEquals(1, (int) unique.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (int) empty.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * When the queue's full the solve fails straight away, and can be asked
+     * for again later.
+     */
+    @Test
+    public void testQueueFull() throws Exception {
+        System.out.println("queueFull");
+        SolverService instance = new SolverService(task -> {
+            throw new RejectedExecutionException();
+        });
+        Grid grid = toGrid(EASY);
+        CompletableFuture<SolveStatus> result = onEventThread(() -> instance.solve(grid));
+        assertTrue(result.isCompletedExceptionally());
+        assertFalse(onEventThread(() -> instance.isSolving(grid)));
+    }
+
+    /**
+     * The real pool solves several grids at once.
+     */
+    @Test
+    public void testPool() throws Exception {
+        System.out.println("pool");
+        SolverService instance = new SolverService(2, 4);
+        try {
+            Grid[] grids = {toGrid(EASY), toGrid(EASY), toGrid(EASY)};
+            List<CompletableFuture<SolveStatus>> results = onEventThread(() -> {
+                List<CompletableFuture<SolveStatus>> futures = new ArrayList<>();
+                for (Grid grid : grids){
+                    futures.add(instance.solve(grid));
+                }
+                return futures;
+            });
+            for (int i = 0; i < grids.length; i++){
+                assertEquals(SolveStatus.SOLVED, results.get(i).get(5, TimeUnit.SECONDS));
+                assertTrue(grids[i].getEmptyCells().isEmpty());
+            }
+        } finally {
+            instance.shutdown();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package sudoku.display;
+
+import java.awt.Font;
+import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import sudoku.batch.PuzzleFormat;
+import sudoku.grid.Grid;
+
+/**
+ *
+ * @author xoab
+ */
+public class SudokuTableTest {
+
+    SudokuTable instance;
+
+    public SudokuTableTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        instance = new SudokuTable();
+        instance.getPuzzlePool().shutdown();
+        int[] cells = new int[PuzzleFormat.LENGTH];
+        assertTrue(PuzzleFormat.parse(SolverServiceTest.EASY, cells));
+        instance.setGrid(Grid.of(cells));
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private JLabel render(int row, int column){
+        return (JLabel) instance.prepareRenderer(instance.getCellRenderer(row, column), row, column);
+    }
+
+    /**
+     * Every cell is drawn by the same renderer, and nothing from the last
+     * cell drawn is left on it.
+     */
+    @Test
+    public void testRenderer() {
+        System.out.println("renderer");
+        assertSame(instance.getCellRenderer(0, 0), instance.getCellRenderer(8, 8));
+
+        // A given in the top corner of a square
+        JLabel label = render(0, 2);
+        assertEquals("3", label.getText());
+        assertEquals(Font.BOLD, label.getFont().getStyle());
+        assertEquals(0, label.getBorder().getBorderInsets(label).left);
+        assertEquals(2, label.getBorder().getBorderInsets(label).top);
+        assertEquals(2, label.getBorder().getBorderInsets(label).right);
+
+        // An empty cell in the middle of a square
+        label = render(1, 1);
+        assertEquals("", label.getText());
+        assertEquals(Font.PLAIN, label.getFont().getStyle());
+        assertNull(label.getBorder());
+    }
+
+    /**
+     * A value from the player comes off the pencil marks of its peers, and
+     * goes back on when it's cleared.
+     */
+    @Test
+    public void testCandidates() {
+        System.out.println("candidates");
+        SudokuTableModel model = (SudokuTableModel) instance.getModel();
+        instance.setShowCandidates(true);
+        int four = 1 << 3;
+        assertEquals(four, model.getCandidates(0, 0) & four);
+        assertEquals(four, model.getCandidates(0, 3) & four);
+        assertEquals(four, model.getCandidates(1, 1) & four);
+
+        model.setValueAt(4, 0, 0);
+        assertEquals(0, model.getCandidates(0, 0));
+        assertEquals(0, model.getCandidates(0, 3) & four);
+        assertEquals(0, model.getCandidates(1, 1) & four);
+        assertEquals(four, model.getCandidates(4, 4) & four);
+
+        model.setValueAt(null, 0, 0);
+        assertEquals(four, model.getCandidates(0, 3) & four);
+        assertEquals(four, model.getCandidates(1, 1) & four);
+    }
+
+    /**
+     * Once the answer's been worked out, entries are checked against it,
+     * not just for clashes.
+     */
+    @Test
+    public void testSolution() throws Exception {
+        System.out.println("solution");
+        Boolean[] ready = {false};
+        for (int wait = 0; wait < 500 && !ready[0]; wait++){
+            Thread.sleep(10);
+            SwingUtilities.invokeAndWait(() -> ready[0] = instance.hasSolution());
+        }
+        assertTrue(ready[0]);
+        SudokuTableModel model = (SudokuTableModel) instance.getModel();
+        assertEquals(1, model.getSolutionCount());
+
+        // Row 0 is 4 8 3 9 2 1 6 5 7; 5 doesn't clash at (0, 0) but isn't it
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(instance.isSolution(0, 0, 4));
+            assertFalse(instance.isSolution(0, 0, 5));
+            assertFalse(instance.isSolution(0, 0, 10));
+        });
+        assertTrue(model.grid.checkValueValidInGrid(0, 0, 5));
+
+        // A grid with more than one answer is only checked for clashes
+        SwingUtilities.invokeAndWait(() -> {
+            instance.clear();
+            assertFalse(instance.hasSolution());
+            assertEquals(SudokuTableModel.UNKNOWN_SOLUTIONS, model.getSolutionCount());
+        });
+    }
+}
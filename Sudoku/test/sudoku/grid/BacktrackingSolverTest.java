@@ -0,0 +1,132 @@
+package sudoku.grid;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author xoab
+ */
+public class BacktrackingSolverTest {
+    
+    // A hard puzzle that needs a lot of guessing
+    static final String HARD = 
+            "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+    static final String HARD_SOLUTION = 
+            "417369825632158947958724316825437169791586432346912758289643571573291684164875293";
+    
+    BacktrackingSolver instance;
+    
+    public BacktrackingSolverTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        instance = new BacktrackingSolver();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Turn an 81-character puzzle string into an array, '.' for empty.
+     * @param puzzle
+     * @return 
+     */
+    static int[] toCells(String puzzle){
+        int[] cells = new int[81];
+        for (int i = 0; i < 81; i++){
+            char c = puzzle.charAt(i);
+            cells[i] = (c == '.') ? 0 : c - '0';
+        }
+        return cells;
+    }
+    
+    static String toString(int[] cells){
+        StringBuilder builder = new StringBuilder();
+        for (int value : cells){
+            builder.append(value == 0 ? '.' : (char) ('0' + value));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Test of solve method, of class BacktrackingSolver.
+     */
+    @Test
+    public void testSolve() {
+        System.out.println("solve");
+        int[] cells = toCells(HARD);
+        assertTrue(instance.solve(cells));
+        assertEquals(HARD_SOLUTION, toString(cells));
+        
+        // The same instance should be fine to reuse
+        cells = toCells(HARD);
+        assertTrue(instance.solve(cells));
+        assertEquals(HARD_SOLUTION, toString(cells));
+    }
+    
+    /**
+     * Conflicting values can't be solved, and the cells should be left alone.
+     */
+    @Test
+    public void testSolveConflict() {
+        System.out.println("solve conflict");
+        String puzzle = "44" + HARD.substring(2);
+        int[] cells = toCells(puzzle);
+        assertFalse(instance.solve(cells));
+        assertEquals(puzzle, toString(cells));
+    }
+    
+    /**
+     * Test of solve method with a Grid, of class BacktrackingSolver.
+     */
+    @Test
+    public void testSolveGrid() throws Exception {
+        System.out.println("solve grid");
+        Integer[][] data = new Integer[9][9];
+        int[] cells = toCells(HARD);
+        for (int i = 0; i < 81; i++){
+            data[i/9][i%9] = (cells[i] == 0) ? null : cells[i];
+        }
+        Grid grid = new Grid(data);
+        assertTrue(grid.solve(instance));
+        assertTrue(grid.getEmptyCells().isEmpty());
+        assertEquals(HARD_SOLUTION.charAt(1) - '0', (int) grid.getValueAt(0, 1));
+    }
+    
+    /**
+     * Test of countSolutions method, of class BacktrackingSolver.
+     */
+    @Test
+    public void testCountSolutions() {
+        System.out.println("countSolutions");
+        int[] cells = toCells(HARD);
+        assertEquals(1, instance.countSolutions(cells, 2));
+        assertEquals(HARD, toString(cells));
+        
+        // Take away some givens and there should be more solutions
+        cells[0] = 0;
+        cells[6] = 0;
+        cells[8] = 0;
+        assertEquals(2, instance.countSolutions(cells, 2));
+        assertEquals(5, instance.countSolutions(new int[81], 5));
+        
+        cells[0] = 5;
+        cells[8] = 5;
+        assertEquals(0, instance.countSolutions(cells, 2));
+    }
+}
@@ -0,0 +1,131 @@
+package sudoku.grid;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.HARD_SOLUTION;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+
+/**
+ *
+ * @author xoab
+ */
+public class CanonicalTest {
+    
+    public CanonicalTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * Shuffle a puzzle into an equivalent one: relabel the digits, reorder 
+     * bands, rows within bands, stacks and columns within stacks, and maybe
+     * transpose.
+     * @param puzzle
+     * @param random
+     * @return 
+     */
+    static int[] shuffle(int[] puzzle, Random random){
+        int[] digits = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int i = 9; i > 1; i--){
+            int j = 1 + random.nextInt(i);
+            int swap = digits[i];
+            digits[i] = digits[j];
+            digits[j] = swap;
+        }
+        int[] rows = lines(random);
+        int[] cols = lines(random);
+        boolean transpose = random.nextBoolean();
+        
+        int[] shuffled = new int[81];
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                int value = digits[puzzle[rows[row]*9 + cols[col]]];
+                shuffled[transpose ? col*9 + row : row*9 + col] = value;
+            }
+        }
+        return shuffled;
+    }
+    
+    private static int[] lines(Random random){
+        int[] thirds = {0, 1, 2};
+        shuffleThree(thirds, random);
+        int[] lines = new int[9];
+        for (int t = 0; t < 3; t++){
+            int[] within = {0, 1, 2};
+            shuffleThree(within, random);
+            for (int i = 0; i < 3; i++){
+                lines[t*3 + i] = thirds[t]*3 + within[i];
+            }
+        }
+        return lines;
+    }
+    
+    private static void shuffleThree(int[] three, Random random){
+        for (int i = 2; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = three[i];
+            three[i] = three[j];
+            three[j] = swap;
+        }
+    }
+
+    /**
+     * Equivalent puzzles should get the same key, and different ones not.
+     */
+    @Test
+    public void testKey() {
+        System.out.println("key");
+        Random random = new Random(5);
+        PuzzleGenerator generator = new PuzzleGenerator(5);
+        for (int i = 0; i < 50; i++){
+            int[] puzzle = generator.generate(25);
+            Canonical.Key key = Canonical.of(puzzle).getKey();
+            assertEquals(key, Canonical.of(shuffle(puzzle, random)).getKey());
+            assertNotEquals(key, Canonical.of(generator.generate(25)).getKey());
+        }
+    }
+    
+    /**
+     * Values should come back out the way they went in.
+     */
+    @Test
+    public void testRoundTrip() {
+        System.out.println("roundTrip");
+        int[] solution = toCells(HARD_SOLUTION);
+        Canonical canonical = Canonical.of(toCells(HARD));
+        int[] values = new int[81];
+        int[] back = new int[81];
+        canonical.toCanonical(solution, values);
+        canonical.fromCanonical(values, back);
+        assertArrayEquals(solution, back);
+        
+        // The canonical puzzle starts with digit 1
+        canonical.toCanonical(toCells(HARD), values);
+        for (int value : values){
+            if (value != 0){
+                assertEquals(1, value);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package sudoku.grid;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+
+/**
+ *
+ * @author xoab
+ */
+public class CellSetTest {
+
+    public CellSetTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of add, remove and going through the set, on both sides of 64.
+     */
+    @Test
+    public void testNext() {
+        System.out.println("next");
+        CellSet instance = new CellSet();
+        assertTrue(instance.isEmpty());
+        assertEquals(-1, instance.first());
+
+        instance.add(0);
+        instance.add(63);
+        instance.add(64);
+        instance.add(80);
+        assertEquals(4, instance.size());
+        assertTrue(instance.contains(63));
+        assertFalse(instance.contains(62));
+
+        StringBuilder seen = new StringBuilder();
+        for (int i = instance.first(); i >= 0; i = instance.next(i + 1)){
+            seen.append(i).append(' ');
+            instance.remove(i);
+        }
+        assertEquals("0 63 64 80 ", seen.toString());
+        assertTrue(instance.isEmpty());
+
+        instance.fill();
+        assertEquals(81, instance.size());
+        assertEquals(80, instance.next(80));
+        assertEquals(-1, instance.next(81));
+        
+        // Bigger grids need more than two words
+        instance = new CellSet(625);
+        instance.fill();
+        assertEquals(625, instance.size());
+        instance.remove(600);
+        assertEquals(601, instance.next(600));
+        assertEquals(-1, instance.next(625));
+    }
+
+    /**
+     * The grid's empty and filled cells are views of its cell set.
+     */
+    @Test
+    public void testGridViews() throws Exception {
+        System.out.println("gridViews");
+        Grid grid = MySolverTest.toGrid(HARD);
+        Set<Pair> empty = grid.getEmptyCells();
+        Map<Pair, Integer> filled = grid.getFilledCells();
+        assertEquals(64, empty.size());
+        assertEquals(17, filled.size());
+        assertEquals(empty, new HashSet<>(empty));
+        assertTrue(empty.contains(new Pair(0, 1)));
+        assertFalse(empty.contains(new Pair(0, 0)));
+        assertFalse(empty.contains(new Pair(9, 0)));
+        assertEquals(4, (int) filled.get(new Pair(0, 0)));
+        assertNull(filled.get(new Pair(0, 1)));
+
+        // A value from the player doesn't make a cell filled
+        grid.getCellAt(0, 1).setValue(1);
+        assertTrue(empty.contains(Pair.of(0, 1)));
+
+        assertTrue(new MySolver(grid).solve());
+        assertTrue(empty.isEmpty());
+        assertEquals(81, filled.size());
+        assertEquals(7, (int) filled.get(Pair.of(0, 2)));
+    }
+
+    /**
+     * Filling a grid tells its listeners once, with every cell it placed;
+     * placing a single cell tells them straight away.
+     */
+    @Test
+    public void testCellsChanged() throws Exception {
+        System.out.println("cellsChanged");
+        Grid grid = MySolverTest.toGrid(HARD);
+        Grid solved = new Grid(grid);
+        assertTrue(new MySolver(solved).solve());
+        int[] values = new int[81];
+        solved.copyValuesTo(values);
+
+        List<CellSet> events = new ArrayList<>();
+        PropertyChangeListener listener = pce -> {
+            assertEquals(Grid.CELLS_CHANGED, pce.getPropertyName());
+            events.add((CellSet) pce.getNewValue());
+        };
+        grid.addPropertyChangeListener(listener);
+        assertTrue(grid.setCellValueInternally(grid.getCellAt(0, 1), values[1]));
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).first());
+        assertEquals(1, events.get(0).size());
+
+        assertTrue(grid.fillFrom(values));
+        assertEquals(2, events.size());
+        assertEquals(63, events.get(1).size());
+        assertFalse(events.get(1).contains(1));
+
+        // Together they're every cell that was empty
+        CellSet all = new CellSet();
+        all.addAll(events.get(0));
+        all.addAll(events.get(1));
+        assertEquals(64, all.size());
+        assertFalse(all.contains(0));
+
+        // No one listening, no events
+        grid.removePropertyChangeListener(listener);
+        Grid again = MySolverTest.toGrid(HARD);
+        again.addPropertyChangeListener(listener);
+        again.removePropertyChangeListener(listener);
+        assertTrue(again.fillFrom(values));
+        assertEquals(2, events.size());
+    }
+}
@@ -0,0 +1,114 @@
+package sudoku.grid;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.HARD_SOLUTION;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+
+/**
+ *
+ * @author xoab
+ */
+public class DancingLinksSolverTest {
+    
+    DancingLinksSolver instance;
+    
+    public DancingLinksSolverTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        instance = new DancingLinksSolver();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of solve method, of class DancingLinksSolver. Solving twice makes
+     * sure the links get restored in between.
+     */
+    @Test
+    public void testSolve() {
+        System.out.println("solve");
+        for (int i = 0; i < 2; i++){
+            int[] cells = toCells(HARD);
+            assertTrue(instance.solve(cells));
+            assertEquals(HARD_SOLUTION, BacktrackingSolverTest.toString(cells));
+        }
+    }
+    
+    /**
+     * A puzzle with no solution shouldn't stop the next one being solved.
+     */
+    @Test
+    public void testSolveNoSolution() {
+        System.out.println("solve no solution");
+        // The last cell of row 0 has to be 9, but column 8 already has one
+        int[] cells = new int[81];
+        for (int col = 0; col < 8; col++){
+            cells[col] = col + 1;
+        }
+        cells[9 + 8] = 9;
+        assertFalse(instance.solve(cells));
+        
+        cells = toCells(HARD);
+        assertTrue(instance.solve(cells));
+        assertEquals(HARD_SOLUTION, BacktrackingSolverTest.toString(cells));
+    }
+    
+    /**
+     * Test of solve method with Integer[][] data, of class DancingLinksSolver.
+     */
+    @Test
+    public void testSolveData() throws Exception {
+        System.out.println("solve data");
+        Integer[][] data = new Integer[9][9];
+        Integer[][] solution = instance.solve(data);
+        assertNotNull(solution);
+        
+        // Any invalid value wouldn't be set, leaving an empty cell
+        Grid grid = new Grid(solution);
+        assertTrue(grid.getEmptyCells().isEmpty());
+        
+        data[0][0] = 1;
+        data[0][1] = 1;
+        assertNull(instance.solve(data));
+    }
+    
+    /**
+     * Test of countSolutions method, of class DancingLinksSolver.
+     */
+    @Test
+    public void testCountSolutions() {
+        System.out.println("countSolutions");
+        int[] cells = toCells(HARD);
+        assertEquals(1, instance.countSolutions(cells, 2));
+        assertEquals(HARD, BacktrackingSolverTest.toString(cells));
+        
+        // Take away some givens and there should be more solutions
+        cells[0] = 0;
+        cells[6] = 0;
+        cells[8] = 0;
+        assertEquals(2, instance.countSolutions(cells, 2));
+        assertEquals(5, instance.countSolutions(new int[81], 5));
+        
+        cells[0] = 5;
+        cells[8] = 5;
+        assertEquals(0, instance.countSolutions(cells, 2));
+    }
+}
@@ -0,0 +1,93 @@
+package sudoku.grid;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+import static sudoku.grid.MySolverTest.EASY;
+
+/**
+ *
+ * @author xoab
+ */
+public class DifficultyRaterTest {
+    
+    DifficultyRater instance;
+    
+    public DifficultyRaterTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        instance = new DifficultyRater();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A puzzle that only needs singles is easy.
+     */
+    @Test
+    public void testRateEasy() throws Exception {
+        System.out.println("rateEasy");
+        Rating rating = instance.rate(toCells(EASY));
+        assertEquals(DifficultyRater.SINGLE, rating.getScore(), 0);
+        assertEquals("single", rating.getHardest());
+        assertEquals(Difficulty.EASY, rating.getDifficulty());
+        assertEquals(Long.valueOf(51), rating.getUses().get("single"));
+        assertTrue(rating.isComplete());
+    }
+    
+    /**
+     * A hard puzzle needs more than singles, and the rater can be reused.
+     */
+    @Test
+    public void testRateHard() throws Exception {
+        System.out.println("rateHard");
+        Rating rating = instance.rate(toCells(HARD));
+        assertTrue(rating.getScore() > DifficultyRater.SINGLE);
+        assertNotEquals("single", rating.getHardest());
+        assertTrue(rating.getUses().get(rating.getHardest()) > 0);
+        assertTrue(rating.isComplete());
+        
+        assertEquals(Difficulty.EASY, instance.rate(toCells(EASY)).getDifficulty());
+    }
+    
+    /**
+     * Once the score is past the limit we should stop looking.
+     */
+    @Test
+    public void testRateLimit() throws Exception {
+        System.out.println("rateLimit");
+        Rating full = instance.rate(toCells(HARD));
+        Rating limited = instance.rate(toCells(HARD), DifficultyRater.SINGLE);
+        assertFalse(limited.isComplete());
+        assertTrue(limited.getScore() > DifficultyRater.SINGLE);
+        assertTrue(limited.getScore() <= full.getScore());
+    }
+    
+    /**
+     * Test of forScore method, of class Difficulty.
+     */
+    @Test
+    public void testForScore() {
+        System.out.println("forScore");
+        assertEquals(Difficulty.EASY, Difficulty.forScore(DifficultyRater.SINGLE));
+        assertEquals(Difficulty.MEDIUM, Difficulty.forScore(3.0));
+        assertEquals(Difficulty.HARD, Difficulty.forScore(DifficultyRater.GUESS));
+    }
+}
@@ -0,0 +1,179 @@
+package sudoku.grid;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.MySolverTest.toGrid;
+
+/**
+ *
+ * @author xoab
+ */
+public class GridSnapshotTest {
+    
+    public GridSnapshotTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    /**
+     * A game with one of the player's values in it.
+     */
+    private static Grid game() throws Exception{
+        Grid grid = toGrid(HARD);
+        for (int i = 0; i < 81; i++){
+            Cell cell = grid.getCellAt(i/9, i%9);
+            if (cell.isEmpty()){
+                cell.setValue(Candidates.lowest(cell.getCandidates()));
+                break;
+            }
+        }
+        return grid;
+    }
+    
+    private static void assertSameGrid(Grid expected, Grid actual){
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                Cell cell = expected.getCellAt(row, col);
+                Cell other = actual.getCellAt(row, col);
+                assertEquals(cell.getValue(), other.getValue());
+                assertEquals(cell.isSetInternally(), other.isSetInternally());
+                if (!cell.isSetInternally()){
+                    assertEquals(cell.getCandidates(), other.getCandidates());
+                }
+            }
+        }
+        assertEquals(expected.getEmptyCells(), actual.getEmptyCells());
+        assertEquals(expected.getFilledCells(), actual.getFilledCells());
+    }
+
+    /**
+     * Test of write and read, values, givens and candidates should all 
+     * come back.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        System.out.println("roundTrip");
+        Grid grid = game();
+        ByteBuffer buffer = ByteBuffer.allocate(2*GridSnapshot.SIZE);
+        buffer.put((byte) 7);
+        GridSnapshot.write(grid, buffer);
+        assertEquals(1 + GridSnapshot.SIZE, buffer.position());
+        
+        buffer.position(1);
+        Grid result = GridSnapshot.read(buffer);
+        assertEquals(1 + GridSnapshot.SIZE, buffer.position());
+        assertSameGrid(grid, result);
+        assertEquals(GridSnapshot.SIZE, GridSnapshot.toBytes(grid).length);
+    }
+    
+    /**
+     * Test of the copy constructor, which goes through a snapshot.
+     */
+    @Test
+    public void testCopy() throws Exception {
+        System.out.println("copy");
+        Grid grid = game();
+        Grid result = new Grid(grid);
+        assertSameGrid(grid, result);
+        result.getCellAt(0, 0).setValue(null);
+        assertNotNull(grid.getCellAt(0, 0).getValue());
+    }
+    
+    /**
+     * A value above 9 or an empty given is a broken snapshot.
+     */
+    @Test
+    public void testBrokenSnapshot() throws Exception {
+        System.out.println("brokenSnapshot");
+        byte[] bytes = GridSnapshot.toBytes(toGrid(HARD));
+        bytes[0] = (byte) 0xAA;
+        try {
+            GridSnapshot.read(ByteBuffer.wrap(bytes));
+            fail("Values above 9 should be refused");
+        } catch (Exception ex) {
+        }
+        
+        bytes = new byte[GridSnapshot.SIZE];
+        bytes[GridSnapshot.VALUE_BYTES] = 1;
+        try {
+            GridSnapshot.read(ByteBuffer.wrap(bytes));
+            fail("Givens without a value should be refused");
+        } catch (Exception ex) {
+        }
+    }
+    
+    /**
+     * Snapshots only fit 9x9 grids, so bigger ones are refused rather than
+     * written wrong.
+     */
+    @Test
+    public void testOtherTopology() throws Exception {
+        System.out.println("otherTopology");
+        Grid grid = new Grid(Topology.of(4));
+        try {
+            GridSnapshot.write(grid, ByteBuffer.allocate(GridSnapshot.SIZE));
+            fail("16x16 grids should be refused");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            GridSnapshot.toBytes(grid);
+            fail("16x16 grids should be refused");
+        } catch (IllegalArgumentException ex) {
+        }
+        Path file = Files.createTempFile("sudoku", ".game");
+        try {
+            GridSnapshot.save(grid, file);
+            fail("16x16 grids should be refused");
+        } catch (IllegalArgumentException ex) {
+            assertEquals(0, Files.size(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    /**
+     * Test of save and load.
+     */
+    @Test
+    public void testSaveLoad() throws Exception {
+        System.out.println("saveLoad");
+        Grid grid = game();
+        Path file = Files.createTempFile("sudoku", ".game");
+        try {
+            GridSnapshot.save(grid, file);
+            assertEquals(GridSnapshot.SIZE, Files.size(file));
+            assertSameGrid(grid, GridSnapshot.load(file));
+            
+            Files.write(file, new byte[]{1, 2, 3});
+            try {
+                GridSnapshot.load(file);
+                fail("Short files should be refused");
+            } catch (Exception ex) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package sudoku.grid;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.HARD_SOLUTION;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+
+/**
+ *
+ * @author xoab
+ */
+public class MySolverTest {
+    
+    // Solvable with singles alone
+    static final String EASY = 
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+    
+    public MySolverTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    static Grid toGrid(String puzzle) throws Exception{
+        int[] cells = toCells(puzzle);
+        Integer[][] data = new Integer[9][9];
+        for (int i = 0; i < 81; i++){
+            data[i/9][i%9] = (cells[i] == 0) ? null : cells[i];
+        }
+        return new Grid(data);
+    }
+
+    /**
+     * Test of solve method, of class MySolver.
+     */
+    @Test
+    public void testSolve() throws Exception {
+        System.out.println("solve");
+        Grid grid = toGrid(EASY);
+        MySolver instance = new MySolver(grid);
+        assertTrue(instance.solve());
+        assertTrue(grid.getEmptyCells().isEmpty());
+        
+        SolverStats stats = instance.getStats();
+        assertTrue(stats.isSolved());
+        assertEquals(0, stats.getGuesses());
+        assertEquals(51, stats.getNakedSingles() + stats.getHiddenSingles());
+    }
+    
+    /**
+     * Hard puzzles need guessing with singles alone, which should show up in
+     * the stats.
+     */
+    @Test
+    public void testSolveWithStats() throws Exception {
+        System.out.println("solveWithStats");
+        Grid grid = toGrid(HARD);
+        SolverStats stats = grid.solveWithStats(new MySolver(Collections.<Technique>emptyList()));
+        assertTrue(stats.isSolved());
+        assertTrue(grid.getEmptyCells().isEmpty());
+        assertTrue(stats.getGuesses() > 0);
+        assertEquals(stats.getGuesses(), stats.getGridClones());
+        assertTrue(stats.getMaxDepth() > 0);
+        
+        Map<String, Long> snapshot = stats.snapshot();
+        assertEquals(Long.valueOf(stats.getGuesses()), snapshot.get("solver.guesses"));
+        assertEquals(Long.valueOf(1), snapshot.get("solver.solved"));
+    }
+    
+    /**
+     * Placing a value should only queue up what it touched.
+     */
+    @Test
+    public void testPlacementQueuesPeers() throws Exception {
+        System.out.println("placementQueuesPeers");
+        Grid grid = new Grid();
+        grid.setCellValueInternally(grid.getCellAt(4, 4), 5);
+        
+        // Row 4, column 4, square 4 and the groups of every peer
+        int groups = 0;
+        for (int group = grid.queue.pollGroup(); group >= 0; group = grid.queue.pollGroup()){
+            groups |= 1 << group;
+        }
+        for (int i = 0; i < 9; i++){
+            assertTrue((groups & (1 << i)) != 0);
+            assertTrue((groups & (1 << (9 + i))) != 0);
+        }
+        assertEquals(1 << (18 + 4), groups & (1 << (18 + 4)));
+        assertEquals(0, groups & (1 << 18));
+        
+        // Nobody is down to one candidate yet
+        assertEquals(-1, grid.queue.pollCell());
+        assertTrue(grid.queue.isEmpty());
+    }
+    
+    /**
+     * Guessing on clones should still arrive at the one solution.
+     */
+    @Test
+    public void testSolveHard() throws Exception {
+        System.out.println("solveHard");
+        Grid grid = toGrid(HARD);
+        assertTrue(new MySolver(grid).solve());
+        int[] cells = new int[81];
+        for (int i = 0; i < 81; i++){
+            cells[i] = grid.getCellAt(i/9, i%9).getValue();
+        }
+        assertEquals(HARD_SOLUTION, BacktrackingSolverTest.toString(cells));
+    }
+    
+    /**
+     * The harder techniques should save most of the guessing, and say so.
+     */
+    @Test
+    public void testTechniqueHits() throws Exception {
+        System.out.println("techniqueHits");
+        SolverStats singles = toGrid(HARD).solveWithStats(
+                new MySolver(Collections.<Technique>emptyList()));
+        SolverStats stats = toGrid(HARD).solveWithStats(new MySolver());
+        assertTrue(stats.isSolved());
+        assertTrue(stats.getGridClones()*10 <= singles.getGridClones());
+        
+        assertFalse(stats.getTechniqueHits().isEmpty());
+        for (Map.Entry<String, Long> entry : stats.getTechniqueHits().entrySet()){
+            assertEquals(entry.getValue(), stats.snapshot().get("solver.technique." + entry.getKey()));
+        }
+    }
+    
+    /**
+     * A contradiction should end the solve rather than leave it going round
+     * in circles. (0,8) has no candidates left once the givens are in.
+     */
+    @Test(timeout = 10000)
+    public void testContradiction() throws Exception {
+        System.out.println("contradiction");
+        Grid grid = toGrid("12345678." + "........9" + ".........".replace(".", "........."));
+        assertFalse(new MySolver(grid).solve());
+    }
+    
+    /**
+     * Each guess gets a clone of its own, so a wrong one can't leave values
+     * behind for the next guess to trip over, and the givens are untouched.
+     */
+    @Test(timeout = 10000)
+    public void testWrongGuesses() throws Exception {
+        System.out.println("wrongGuesses");
+        Grid grid = toGrid(HARD);
+        SolverStats stats = grid.solveWithStats(new MySolver(Collections.<Technique>emptyList()));
+        assertTrue(stats.isSolved());
+        assertTrue(stats.getBacktracks() > 0);
+        
+        int[] cells = new int[81];
+        for (int i = 0; i < 81; i++){
+            cells[i] = grid.getCellAt(i/9, i%9).getValue();
+        }
+        assertEquals(HARD_SOLUTION, BacktrackingSolverTest.toString(cells));
+        
+        // A puzzle with no solution has to run out of guesses; give the 
+        // first empty cell a candidate that isn't its answer
+        int[] puzzle = toCells(HARD);
+        int[] solution = toCells(HARD_SOLUTION);
+        int cell = 0;
+        while (puzzle[cell] != 0){
+            cell++;
+        }
+        int candidates = toGrid(HARD).getCellAt(cell/9, cell%9).getCandidates();
+        puzzle[cell] = Candidates.lowest(candidates & ~Candidates.bit(solution[cell]));
+        Grid wrong = toGrid(BacktrackingSolverTest.toString(puzzle));
+        assertFalse(new MySolver(Collections.<Technique>emptyList()).solve(wrong));
+    }
+}
@@ -0,0 +1,109 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author xoab
+ */
+public class PuzzleGeneratorTest {
+    
+    public PuzzleGeneratorTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    private static int countClues(int[] puzzle){
+        int clues = 0;
+        for (int value : puzzle){
+            if (value != 0){
+                clues++;
+            }
+        }
+        return clues;
+    }
+
+    /**
+     * Test of generate method, of class PuzzleGenerator.
+     */
+    @Test
+    public void testGenerate() {
+        System.out.println("generate");
+        PuzzleGenerator instance = new PuzzleGenerator(1234);
+        for (int i = 0; i < 20; i++){
+            int[] puzzle = instance.generate(30);
+            assertEquals(30, countClues(puzzle));
+            assertEquals(1, new DancingLinksSolver().countSolutions(puzzle, 2));
+        }
+    }
+    
+    /**
+     * The same seed should always give the same puzzle.
+     */
+    @Test
+    public void testGenerateSeed() {
+        System.out.println("generate seed");
+        int[] first = new PuzzleGenerator(99).generate(25);
+        int[] second = new PuzzleGenerator(99).generate(25);
+        int[] other = new PuzzleGenerator(100).generate(25);
+        assertArrayEquals(first, second);
+        assertFalse(Arrays.equals(first, other));
+    }
+    
+    /**
+     * Puzzles made for a difficulty should rate as that difficulty.
+     */
+    @Test
+    public void testGenerateDifficulty() throws Exception {
+        System.out.println("generate difficulty");
+        PuzzleGenerator instance = new PuzzleGenerator(7);
+        DifficultyRater rater = new DifficultyRater();
+        for (Difficulty difficulty : Difficulty.values()){
+            int[] puzzle = instance.generate(difficulty);
+            assertEquals(difficulty, rater.rate(puzzle).getDifficulty());
+            assertEquals(1, new DancingLinksSolver().countSolutions(puzzle, 2));
+        }
+    }
+    
+    /**
+     * Test of generate method for batches, of class PuzzleGenerator.
+     */
+    @Test
+    public void testGenerateBatch() throws Exception {
+        System.out.println("generate batch");
+        int[][] single = PuzzleGenerator.generate(5, 8, 30, 1);
+        int[][] several = PuzzleGenerator.generate(5, 8, 30, 3);
+        assertTrue(Arrays.deepEquals(single, several));
+    }
+    
+    /**
+     * Test of the Grid constructor that uses the generator.
+     */
+    @Test
+    public void testGrid() throws Exception {
+        System.out.println("grid");
+        Grid grid = new Grid(30, 42);
+        assertEquals(51, grid.getEmptyCells().size());
+        assertEquals(1, grid.countSolutions(2));
+    }
+}
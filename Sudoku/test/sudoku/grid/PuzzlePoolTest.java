@@ -0,0 +1,118 @@
+package sudoku.grid;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author xoab
+ */
+public class PuzzlePoolTest {
+    
+    PuzzlePool instance;
+    
+    public PuzzlePoolTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        instance = new PuzzlePool(4, 1);
+    }
+    
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+    
+    // Wait for the workers to get the pool to some size
+    private void waitForSize(Difficulty difficulty, int size) throws Exception {
+        for (int wait = 0; wait < 1000 && instance.size(difficulty) != size; wait++){
+            Thread.sleep(10);
+        }
+        assertEquals(size, instance.size(difficulty));
+    }
+    
+    private static void assertPuzzle(int[] puzzle){
+        assertEquals(81, puzzle.length);
+        assertEquals(1, new DancingLinksSolver().countSolutions(puzzle, 2));
+    }
+
+    /**
+     * An empty pool makes the puzzle in the background, then fills itself
+     * so the next one's a hit.
+     */
+    @Test
+    public void testMiss() throws Exception {
+        System.out.println("miss");
+        CompletableFuture<int[]> first = instance.take(Difficulty.EASY);
+        assertPuzzle(first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, instance.getMisses());
+        assertEquals(0, instance.getHits());
+        
+        waitForSize(Difficulty.EASY, 4);
+        CompletableFuture<int[]> second = instance.take(Difficulty.EASY);
+        assertTrue(second.isDone());
+        assertPuzzle(second.get());
+        assertEquals(1, instance.getMisses());
+        assertEquals(1, instance.getHits());
+        
+        Grid grid = instance.takeGrid(Difficulty.EASY).get(10, TimeUnit.SECONDS);
+        assertFalse(grid.getEmptyCells().isEmpty());
+        assertEquals(2, instance.getHits());
+    }
+
+    /**
+     * Taking from a full pool only refills it once it's below half full.
+     */
+    @Test
+    public void testRefill() throws Exception {
+        System.out.println("refill");
+        instance.start();
+        waitForSize(Difficulty.EASY, 4);
+        
+        instance.take(Difficulty.EASY);
+        instance.take(Difficulty.EASY);
+        Thread.sleep(100);
+        assertEquals(2, instance.size(Difficulty.EASY));
+        
+        instance.take(Difficulty.EASY);
+        waitForSize(Difficulty.EASY, 4);
+        assertEquals(3, instance.getHits());
+    }
+
+    /**
+     * Once it's shut down, nothing more gets made and a miss fails rather
+     * than waiting forever.
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        System.out.println("shutdown");
+        instance.shutdown();
+        instance.start();
+        CompletableFuture<int[]> result = instance.take(Difficulty.HARD);
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail("Nothing left to make the puzzle");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, instance.getMisses());
+        assertEquals(0, instance.size(Difficulty.HARD));
+    }
+}
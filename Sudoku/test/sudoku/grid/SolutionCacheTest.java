@@ -0,0 +1,119 @@
+package sudoku.grid;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+import static sudoku.grid.CanonicalTest.shuffle;
+
+/**
+ *
+ * @author xoab
+ */
+public class SolutionCacheTest {
+    
+    public SolutionCacheTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A shuffled copy of a solved puzzle should come from the cache, with 
+     * its own solution.
+     */
+    @Test
+    public void testCachingSolver() {
+        System.out.println("cachingSolver");
+        SolutionCache cache = new SolutionCache(4);
+        CachingSolver instance = new CachingSolver(new DancingLinksSolver(), cache);
+        
+        int[] cells = toCells(HARD);
+        assertTrue(instance.solve(cells));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        
+        int[] shuffled = shuffle(toCells(HARD), new Random(9));
+        int[] expected = shuffled.clone();
+        assertTrue(new DancingLinksSolver().solve(expected));
+        assertTrue(instance.solve(shuffled));
+        assertArrayEquals(expected, shuffled);
+        assertEquals(1, cache.getHits());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        assertTrue(instance.getStats().isSolved());
+    }
+    
+    /**
+     * The least recently used solution goes first.
+     */
+    @Test
+    public void testEviction() {
+        System.out.println("eviction");
+        SolutionCache instance = new SolutionCache(2);
+        PuzzleGenerator generator = new PuzzleGenerator(11);
+        int[][] puzzles = new int[3][];
+        Canonical[] canonicals = new Canonical[3];
+        int[] solution = new int[81];
+        for (int i = 0; i < 3; i++){
+            puzzles[i] = generator.generate(30);
+            canonicals[i] = Canonical.of(puzzles[i]);
+            System.arraycopy(puzzles[i], 0, solution, 0, 81);
+            new DancingLinksSolver().solve(solution);
+            instance.put(canonicals[i], solution);
+            
+            // Keep the first one fresh
+            instance.get(canonicals[0], solution);
+        }
+        assertEquals(2, instance.size());
+        assertEquals(1, instance.getEvictions());
+        assertTrue(instance.get(canonicals[0], solution));
+        assertFalse(instance.get(canonicals[1], solution));
+        assertTrue(instance.get(canonicals[2], solution));
+    }
+    
+    /**
+     * Solving the same grid twice should hit the shared cache.
+     */
+    @Test
+    public void testSolve1() throws Exception {
+        System.out.println("solve1");
+        long hits = Grid.getSolutionCache().getHits();
+        Grid first = MySolverTest.toGrid(HARD);
+        Grid second = MySolverTest.toGrid(HARD);
+        assertTrue(first.solve1());
+        assertTrue(second.solve1());
+        assertTrue(second.getEmptyCells().isEmpty());
+        assertEquals(hits + 1, Grid.getSolutionCache().getHits());
+        for (int row = 0; row < 9; row++){
+            for (int col = 0; col < 9; col++){
+                assertEquals(first.getCellAt(row, col).getValue(), second.getCellAt(row, col).getValue());
+            }
+        }
+
+        // Left out of the cache, it's solved from scratch without asking
+        long misses = Grid.getSolutionCache().getMisses();
+        Grid third = MySolverTest.toGrid(HARD);
+        assertEquals(SolveStatus.SOLVED, third.solve1(new SolveBudget(), false));
+        assertTrue(third.getEmptyCells().isEmpty());
+        assertEquals(hits + 1, Grid.getSolutionCache().getHits());
+        assertEquals(misses, Grid.getSolutionCache().getMisses());
+    }
+}
@@ -0,0 +1,125 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static sudoku.grid.BacktrackingSolverTest.HARD;
+import static sudoku.grid.BacktrackingSolverTest.toCells;
+
+/**
+ *
+ * @author xoab
+ */
+public class SolveBudgetTest {
+
+    // Takes thousands of nodes for plain backtracking
+    static final String SLOW =
+            ".......1.4.........2...........5.4.7..8...3....1.9....3..4..2...5.1........8.6...";
+
+    public SolveBudgetTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static List<ArraySolver> solvers(){
+        return Arrays.asList(new BacktrackingSolver(), new DancingLinksSolver(),
+                new ParallelSolver());
+    }
+
+    /**
+     * With room to spare, solving ends the same way it would without a
+     * budget.
+     */
+    @Test
+    public void testEnoughBudget() throws Exception {
+        System.out.println("enoughBudget");
+        for (ArraySolver instance : solvers()){
+            int[] cells = toCells(HARD);
+            assertEquals(SolveStatus.SOLVED, instance.solve(cells, new SolveBudget(1, TimeUnit.MINUTES, 0)));
+
+            cells = toCells("44" + HARD.substring(2));
+            assertEquals(SolveStatus.UNSOLVABLE, instance.solve(cells, new SolveBudget()));
+        }
+        Grid grid = MySolverTest.toGrid(HARD);
+        assertEquals(SolveStatus.SOLVED, new MySolver().solve(grid, new SolveBudget()));
+    }
+
+    /**
+     * Running out of nodes, or being cancelled, stops the solve and leaves
+     * the cells alone.
+     */
+    @Test
+    public void testSpentBudget() throws Exception {
+        System.out.println("spentBudget");
+        BacktrackingSolver instance = new BacktrackingSolver();
+        int[] cells = toCells(SLOW);
+        assertEquals(SolveStatus.BUDGET_EXCEEDED, instance.solve(cells, new SolveBudget(0, TimeUnit.SECONDS, 1)));
+        assertArrayEquals(toCells(SLOW), cells);
+
+        SolveBudget budget = new SolveBudget();
+        budget.cancel();
+        assertEquals(SolveStatus.CANCELLED, instance.solve(cells, budget));
+        assertArrayEquals(toCells(SLOW), cells);
+
+        Grid grid = MySolverTest.toGrid(SLOW);
+        assertEquals(SolveStatus.CANCELLED, new MySolver().solve(grid, budget));
+        assertFalse(grid.getEmptyCells().isEmpty());
+    }
+
+    /**
+     * Counting the solutions of an empty grid would never end, but every
+     * solver checks the budget while searching.
+     */
+    @Test
+    public void testNodeBudget() throws Exception {
+        System.out.println("nodeBudget");
+        for (ArraySolver instance : solvers()){
+            SolveBudget budget = new SolveBudget(1, TimeUnit.MINUTES, 10000);
+            instance.budget = budget;
+            instance.countSolutions(new int[81], Integer.MAX_VALUE);
+            assertEquals(SolveStatus.BUDGET_EXCEEDED, budget.getSpentStatus());
+        }
+    }
+
+    /**
+     * Cancelling from another thread stops a search that would otherwise
+     * go on for ages.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        System.out.println("cancel");
+        BacktrackingSolver instance = new BacktrackingSolver();
+        SolveBudget budget = new SolveBudget();
+        instance.budget = budget;
+        Thread counting = new Thread(() -> instance.countSolutions(new int[81], Integer.MAX_VALUE));
+        counting.start();
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        budget.cancel();
+        counting.join(5000);
+        assertFalse(counting.isAlive());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(SolveStatus.CANCELLED, budget.getSpentStatus());
+    }
+}
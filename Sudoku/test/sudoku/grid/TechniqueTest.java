@@ -0,0 +1,162 @@
+package sudoku.grid;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Each technique on an empty grid with just enough candidates ruled out to 
+ * set it up.
+ * @author xoab
+ */
+public class TechniqueTest {
+    
+    Grid grid;
+    
+    public TechniqueTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        grid = new Grid();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    private void eliminate(int row, int col, int... values){
+        int mask = 0;
+        for (int value : values){
+            mask |= Candidates.bit(value);
+        }
+        grid.eliminateCandidates(grid.getCellAt(row, col), mask);
+    }
+    
+    private boolean has(int row, int col, int value){
+        return Candidates.contains(grid.getCellAt(row, col).getCandidates(), value);
+    }
+
+    /**
+     * Two cells that can only be 1 or 2 take them from the rest of the row
+     * and square.
+     */
+    @Test
+    public void testNakedPair() throws Exception {
+        System.out.println("nakedPair");
+        for (int value = 3; value <= 9; value++){
+            eliminate(0, 0, value);
+            eliminate(0, 1, value);
+        }
+        assertTrue(new NakedSubset(2).apply(grid, -1) > 0);
+        assertTrue(has(0, 0, 1) && has(0, 1, 2));
+        assertFalse(has(0, 5, 1) || has(0, 5, 2));
+        assertFalse(has(2, 2, 1) || has(2, 2, 2));
+        assertTrue(has(5, 0, 1));
+        
+        // Nothing new to look at
+        assertEquals(0, new NakedSubset(2).apply(grid, grid.getChanges()));
+    }
+    
+    /**
+     * If 1 and 2 can only go in two cells of a row, those cells can't be 
+     * anything else.
+     */
+    @Test
+    public void testHiddenPair() throws Exception {
+        System.out.println("hiddenPair");
+        for (int col = 2; col < 9; col++){
+            eliminate(0, col, 1, 2);
+        }
+        assertTrue(new HiddenSubset(2).apply(grid, -1) > 0);
+        assertEquals(Candidates.bit(1) | Candidates.bit(2), grid.getCellAt(0, 0).getCandidates());
+        assertEquals(Candidates.bit(1) | Candidates.bit(2), grid.getCellAt(0, 1).getCandidates());
+        assertTrue(has(0, 2, 3));
+    }
+    
+    /**
+     * If 5 can only go in the top row of the first square, it can't go 
+     * anywhere else in that row.
+     */
+    @Test
+    public void testPointing() throws Exception {
+        System.out.println("pointing");
+        for (int row = 1; row < 3; row++){
+            for (int col = 0; col < 3; col++){
+                eliminate(row, col, 5);
+            }
+        }
+        assertEquals(6, new PointingCandidates().apply(grid, -1));
+        assertTrue(has(0, 0, 5));
+        for (int col = 3; col < 9; col++){
+            assertFalse(has(0, col, 5));
+        }
+        assertTrue(has(3, 0, 5));
+    }
+    
+    /**
+     * If 5 can only go in the first three cells of the top row, it can't go
+     * anywhere else in the first square.
+     */
+    @Test
+    public void testBoxLine() throws Exception {
+        System.out.println("boxLine");
+        for (int col = 3; col < 9; col++){
+            eliminate(0, col, 5);
+        }
+        assertEquals(6, new BoxLineReduction().apply(grid, -1));
+        assertTrue(has(0, 1, 5));
+        assertFalse(has(1, 1, 5) || has(2, 2, 5));
+        assertTrue(has(1, 3, 5));
+    }
+    
+    /**
+     * If 7 can only go in columns 2 and 6 in rows 1 and 5, it can't go 
+     * anywhere else in those columns.
+     */
+    @Test
+    public void testXWing() throws Exception {
+        System.out.println("xWing");
+        for (int col = 0; col < 9; col++){
+            if (col != 2 && col != 6){
+                eliminate(1, col, 7);
+                eliminate(5, col, 7);
+            }
+        }
+        assertEquals(14, new Fish(2).apply(grid, -1));
+        assertTrue(has(1, 2, 7) && has(5, 6, 7));
+        assertFalse(has(0, 2, 7) || has(8, 6, 7));
+        assertTrue(has(0, 3, 7));
+    }
+
+    /**
+     * The same X-Wing with 7 already placed elsewhere; the row it's in
+     * doesn't count against the pattern.
+     */
+    @Test
+    public void testXWingPlaced() throws Exception {
+        System.out.println("xWingPlaced");
+        assertTrue(grid.setCellValueInternally(grid.getCellAt(7, 4), 7));
+        for (int col = 0; col < 9; col++){
+            if (col != 2 && col != 6){
+                eliminate(1, col, 7);
+                eliminate(5, col, 7);
+            }
+        }
+        assertEquals(12, new Fish(2).apply(grid, -1));
+        assertTrue(has(1, 2, 7) && has(5, 6, 7));
+        assertFalse(has(0, 2, 7) || has(8, 6, 7));
+        assertTrue(has(0, 3, 7));
+    }
+}
@@ -0,0 +1,204 @@
+package sudoku.grid;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author xoab
+ */
+public class TopologyTest {
+
+    public TopologyTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * A full grid shuffled from a pattern, with some of the cells emptied.
+     * It may have more than one solution, which is fine for solving.
+     * @param topology
+     * @param blank the share of cells to empty
+     * @param seed
+     * @return
+     */
+    static int[] puzzle(Topology topology, double blank, long seed){
+        int size = topology.size;
+        int box = topology.boxSize;
+        Random random = new Random(seed);
+        int[] digits = shuffle(size, random);
+        int[] rows = lines(box, random);
+        int[] cols = lines(box, random);
+        int[] cells = new int[topology.cellCount];
+        for (int row = 0; row < size; row++){
+            for (int col = 0; col < size; col++){
+                int r = rows[row];
+                if (random.nextDouble() >= blank){
+                    cells[row*size + col] = digits[((r%box)*box + r/box + cols[col])%size] + 1;
+                }
+            }
+        }
+        return cells;
+    }
+
+    // Lines shuffled within their bands, and the bands shuffled too
+    private static int[] lines(int box, Random random){
+        int[] bands = shuffle(box, random);
+        int[] lines = new int[box*box];
+        for (int band = 0; band < box; band++){
+            int[] within = shuffle(box, random);
+            for (int i = 0; i < box; i++){
+                lines[band*box + i] = bands[band]*box + within[i];
+            }
+        }
+        return lines;
+    }
+
+    private static int[] shuffle(int n, Random random){
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++){
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Every group of a solved grid has every value once.
+     */
+    private static void assertSolved(Grid grid){
+        Topology topology = grid.getTopology();
+        assertTrue(grid.getEmptyCells().isEmpty());
+        for (int g = 0; g < topology.groupCount; g++){
+            CellGroup group = grid.getGroup(g);
+            int seen = 0;
+            for (int i = 0; i < topology.size; i++){
+                seen |= Candidates.bit(group.getCell(i).getDigit());
+            }
+            assertEquals(topology.allValues, seen);
+        }
+    }
+
+    /**
+     * Test of where cells sit in the bigger grids.
+     */
+    @Test
+    public void testShape() {
+        System.out.println("shape");
+        Topology instance = Topology.of(5);
+        assertSame(instance, Topology.forSize(25));
+        assertSame(Topology.STANDARD, Topology.forSize(9));
+        assertEquals(625, instance.cellCount);
+        assertEquals(75, instance.groupCount);
+        assertEquals((1 << 25) - 1, instance.allValues);
+
+        // Row 7, col 12 is in the middle square of the second band
+        int cell = instance.indexOf(7, 12);
+        assertEquals(7*25 + 12, cell);
+        assertEquals(7, instance.square[cell]);
+        assertEquals(2*5 + 2, instance.squarePosition[cell]);
+        assertEquals(-1, instance.indexOf(25, 0));
+        assertEquals(0x108421, instance.boxCol);
+
+        for (int i = 0; i < 81; i++){
+            assertEquals(Grid.getSquare(i/9, i%9), Topology.STANDARD.square[i]);
+        }
+        try {
+            Topology.of(6);
+            fail("Values past 32 don't fit a mask");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * A 16x16 grid, with the same cells set and the same candidates as
+     * you'd work out by hand.
+     */
+    @Test
+    public void testGrid() throws Exception {
+        System.out.println("grid");
+        Topology topology = Topology.of(4);
+        int[] cells = puzzle(topology, 0.5, 1);
+        Grid instance = Grid.of(topology, cells);
+        int givens = 0;
+        for (int i = 0; i < cells.length; i++){
+            Cell cell = instance.getCell(i);
+            if (cells[i] != 0){
+                givens++;
+                assertEquals(cells[i], cell.getDigit());
+                continue;
+            }
+            int used = 0;
+            for (int j = 0; j < cells.length; j++){
+                boolean peer = topology.row[i] == topology.row[j] || topology.col[i] == topology.col[j]
+                        || topology.square[i] == topology.square[j];
+                if (peer && cells[j] != 0){
+                    used |= Candidates.bit(cells[j]);
+                }
+            }
+            assertEquals(~used & topology.allValues, cell.getCandidates());
+        }
+        assertEquals(256 - givens, instance.getEmptyCells().size());
+        assertEquals(givens, instance.getFilledCells().size());
+        assertFalse(instance.checkValueValidInGrid(0, 0, 17));
+
+        Grid copy = new Grid(instance);
+        assertEquals(instance.getEmptyCells(), copy.getEmptyCells());
+    }
+
+    /**
+     * Bigger grids solve with each engine that can handle them.
+     */
+    @Test
+    public void testSolve() throws Exception {
+        System.out.println("solve");
+        for (int box = 4; box <= 5; box++){
+            Topology topology = Topology.of(box);
+            List<Solver> solvers = Arrays.asList(new MySolver(),
+                    new BacktrackingSolver(topology), new DancingLinksSolver(topology));
+            for (Solver solver : solvers){
+                Grid grid = Grid.of(topology, puzzle(topology, 0.4, box));
+                SolveBudget budget = new SolveBudget(1, TimeUnit.MINUTES, 0);
+                assertEquals(SolveStatus.SOLVED, solver.solve(grid, budget));
+                assertSolved(grid);
+            }
+        }
+
+        Grid grid = Grid.of(Topology.of(5), puzzle(Topology.of(5), 0.45, 1));
+        assertTrue(grid.solve1());
+        assertSolved(grid);
+
+        try {
+            new DancingLinksSolver().solve(grid);
+            fail("A 9x9 solver shouldn't take a 25x25 grid");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}